@@ -1,10 +1,18 @@
+import controller.CachingLLMService;
 import controller.ConsoleView;
+import controller.EndpointPool;
 import controller.GameController;
+import controller.LLMCallType;
+import controller.LLMResponseCache;
+import controller.LLMRoute;
 import controller.LLMService;
 import controller.LLMServiceImpl;
+import controller.ProfileStats;
 import model.GameDifficulty;
 import view.ConsoleViewImpl;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Scanner;
 
 public class App {
@@ -14,12 +22,9 @@ public class App {
     public static void main(String[] args) throws Exception {
         view.displayWelcome();
 
-        LLMService llmService = new LLMServiceImpl(
-                    "http://localhost:8080/v1/chat/completions",
-                args.length > 0 ? args[0] : "qwen2.5-1.5b-instruct",
-                60,
-                3
-        );
+        String model = args.length > 0 ? args[0] : "qwen2.5-1.5b-instruct";
+        LLMServiceImpl backend = createBackend(model);
+        LLMService llmService = withCache(backend);
 
         displayIntro(llmService);
 
@@ -28,17 +33,75 @@ public class App {
 
         GameController game = new GameController(difficulty, llmService);
         game.startGame(difficulty, playerName, 20, scanner);
+
+        if (llmService instanceof CachingLLMService cachingService) {
+            cachingService.getCache().flush();
+            System.out.printf("LLM cache: %d hits, %d misses (%d entries)%n",
+                    cachingService.getHits(), cachingService.getMisses(), cachingService.getCache().size());
+        }
+        for (LLMRoute route : backend.getRoutes()) {
+            System.out.printf("LLM route %s: %d calls, %d failed, p95 %d ms, %.1f calls/min, concurrency limit %d, %d queued%n",
+                    route, route.getCompleted(), route.getFailed(), route.p95Millis(), route.getCallsPerMinute(),
+                    route.getLimiter().getLimit(), route.getLimiter().getQueueDepth());
+        }
+        ProfileStats profileStats = backend.getProfileStats();
+        for (LLMCallType type : LLMCallType.values()) {
+            if (profileStats.getCalls(type) == 0) continue;
+            // Content batches get the per-item budget once per item
+            System.out.printf("LLM profile %s: %d calls, %.0f tokens avg, %d max, %d used the whole budget (%d per item), p95 %d ms%n",
+                    type.name().toLowerCase(), profileStats.getCalls(type), profileStats.getAverageTokens(type),
+                    profileStats.getMaxTokens(type), profileStats.getExhausted(type),
+                    backend.getProfile(type).maxTokens(), profileStats.p95Millis(type));
+        }
+        System.out.printf("LLM replies saved by JSON repair: %d%n", backend.getParseStats().getRepairs());
+    }
+
+    private static LLMServiceImpl createBackend(String model) {
+        // -Djavarpg.llm.endpoints=localhost:8080,localhost:8081 spreads calls over several llama-server processes;
+        // -Djavarpg.llm.route.<type>=model@endpoints sends one kind of call elsewhere
+        return new LLMServiceImpl(
+                EndpointPool.parse(System.getProperty("javarpg.llm.endpoints", LLMServiceImpl.DEFAULT_ENDPOINT)),
+                model,
+                60,
+                3,
+                Boolean.getBoolean("javarpg.llm.hedge")
+        );
+    }
+
+    private static LLMService withCache(LLMServiceImpl llmService) {
+        // -Djavarpg.llm.cache=cached|fresh keeps world-gen responses on disk between runs
+        String cacheMode = System.getProperty("javarpg.llm.cache", "off");
+        if (cacheMode.equalsIgnoreCase("off")) {
+            return llmService;
+        }
+        try {
+            LLMResponseCache cache = new LLMResponseCache(
+                    Path.of(System.getProperty("javarpg.llm.cache.file", "llm-cache.bin")),
+                    Integer.getInteger("javarpg.llm.cache.mb", 16) * 1024 * 1024);
+            // Keyed by the model and sampling settings that actually answer content calls
+            String model = llmService.getRoute(LLMCallType.CONTENT).getModel();
+            return new CachingLLMService(llmService, cache, model, llmService.getProfile(LLMCallType.CONTENT),
+                    CachingLLMService.Mode.valueOf(cacheMode.toUpperCase()));
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("LLM cache disabled: " + e.getMessage());
+            return llmService;
+        }
     }
 
     private static void displayIntro(LLMService llmService) {
-        String intro = llmService.generateText(
+        System.out.println();
+        // Print the narration as it is generated instead of waiting for the whole reply
+        String intro = llmService.generateTextStreaming(
                 "You are a narrator for a text-based RPG called JavaRPG. Be atmospheric and brief.",
-                "Generate a short (2-3 sentences) welcome message for a player about to start a fantasy RPG adventure. No titles, no formatting, just the narration."
+                "Generate a short (2-3 sentences) welcome message for a player about to start a fantasy RPG adventure. No titles, no formatting, just the narration.",
+                token -> {
+                    System.out.print(token);
+                    System.out.flush();
+                }
         );
 
-        System.out.println();
         if (intro != null) {
-            System.out.println(intro);
+            System.out.println();
             System.out.println();
         } else {
             System.out.println("The oracle is silent today... LLM server is offline.");
@@ -0,0 +1,201 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+
+/**
+ * AIMD cap on concurrent LLM calls, steered by round-trip latency.
+ * While calls come back close to the best latency seen recently the limit creeps up by
+ * one per window of calls; once latency passes the tolerance (the server has started
+ * queueing) or a call fails, it is cut back multiplicatively. Calls over the limit wait
+ * instead of piling onto the server, served by priority and then earliest deadline;
+ * background classes never take the last slot, so interactive calls don't queue behind them.
+ */
+public class AdaptiveLimiter {
+    public enum Outcome {
+        SUCCESS,
+        FAILURE,
+        IGNORED // never reached the server or was abandoned; no signal either way
+    }
+
+    private static final double BACKOFF = 0.75;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final int BASELINE_WINDOW = 50;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final LongSupplier nanoClock;
+
+    private double limit;
+    private int inFlight;
+    private record Waiter(LLMPriority priority, long deadline, long seq, CompletableFuture<Permit> future) {}
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(Comparator
+            .comparing(Waiter::priority)
+            .thenComparingLong(Waiter::deadline)
+            .thenComparingLong(Waiter::seq));
+    private long nextSeq;
+
+    // Best latency of the previous window is the no-queueing baseline; refreshed so it can drift
+    private long baselineNanos = Long.MAX_VALUE;
+    private long windowMinNanos = Long.MAX_VALUE;
+    private int windowSamples;
+    private long lastDecrease;
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, System::nanoTime);
+    }
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, LongSupplier nanoClock) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+        this.nanoClock = nanoClock;
+    }
+
+    public final class Permit {
+        private final long start = nanoClock.getAsLong();
+        private boolean released;
+
+        public void release(Outcome outcome) {
+            synchronized (AdaptiveLimiter.this) {
+                if (released) return;
+                released = true;
+            }
+            onRelease(outcome, nanoClock.getAsLong() - start);
+        }
+    }
+
+    // Completes once a slot is free; cancel the future to give up a place in the queue
+    public CompletableFuture<Permit> acquire(LLMPriority priority, long deadlineNanos) {
+        synchronized (this) {
+            waiters.removeIf(waiter -> waiter.future().isDone()); // callers that gave up don't hold the line
+            Waiter next = waiters.peek();
+            if (inFlight < capacityFor(priority) && (next == null || next.priority().compareTo(priority) > 0)) {
+                inFlight++;
+                return CompletableFuture.completedFuture(new Permit());
+            }
+            CompletableFuture<Permit> future = new CompletableFuture<>();
+            waiters.add(new Waiter(priority, deadlineNanos, nextSeq++, future));
+            return future;
+        }
+    }
+
+    // World generation and speculative work leave one slot free for the player
+    private int capacityFor(LLMPriority priority) {
+        int slots = (int) limit;
+        return priority.compareTo(LLMPriority.CONTENT) >= 0 ? Math.max(1, slots - 1) : slots;
+    }
+
+    private void onRelease(Outcome outcome, long rttNanos) {
+        List<CompletableFuture<Permit>> granted;
+        synchronized (this) {
+            boolean saturated = inFlight >= (int) limit;
+            inFlight--;
+            if (outcome == Outcome.SUCCESS) {
+                sample(rttNanos);
+            }
+
+            boolean congested = outcome == Outcome.FAILURE
+                    || (outcome == Outcome.SUCCESS && baselineNanos != Long.MAX_VALUE
+                        && rttNanos > baselineNanos * LATENCY_TOLERANCE);
+            long now = nanoClock.getAsLong();
+            if (congested) {
+                // One cut per round trip, or a burst of slow replies would collapse the limit to the floor
+                if (now - lastDecrease >= Math.min(rttNanos, baselineNanos)) {
+                    limit = Math.max(minLimit, limit * BACKOFF);
+                    lastDecrease = now;
+                }
+            } else if (outcome == Outcome.SUCCESS && saturated) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit); // about +1 per full window
+            }
+            granted = drain();
+        }
+        grant(granted);
+    }
+
+    // Moves a queued caller up to a more urgent class, keeping its deadline; false once it is no longer waiting
+    public boolean promote(CompletableFuture<Permit> waiting, LLMPriority priority) {
+        List<CompletableFuture<Permit>> granted;
+        synchronized (this) {
+            Waiter found = null;
+            for (Waiter waiter : waiters) {
+                if (waiter.future() == waiting) {
+                    found = waiter;
+                    break;
+                }
+            }
+            if (found == null || waiting.isDone()) {
+                return false;
+            }
+            if (found.priority().compareTo(priority) > 0) {
+                waiters.remove(found);
+                waiters.add(new Waiter(priority, found.deadline(), found.seq(), waiting));
+            }
+            granted = drain();
+        }
+        grant(granted);
+        return true;
+    }
+
+    private void grant(List<CompletableFuture<Permit>> granted) {
+        for (CompletableFuture<Permit> waiter : granted) {
+            Permit permit = new Permit();
+            if (!waiter.complete(permit)) {
+                permit.release(Outcome.IGNORED); // cancelled between drain and here
+            }
+        }
+    }
+
+    private void sample(long rttNanos) {
+        windowMinNanos = Math.min(windowMinNanos, rttNanos);
+        if (baselineNanos == Long.MAX_VALUE) {
+            baselineNanos = rttNanos;
+        }
+        if (++windowSamples >= BASELINE_WINDOW) {
+            baselineNanos = windowMinNanos;
+            windowMinNanos = Long.MAX_VALUE;
+            windowSamples = 0;
+        } else {
+            baselineNanos = Math.min(baselineNanos, rttNanos);
+        }
+    }
+
+    // Hands free slots to queued callers in priority order, skipping any that gave up; called with the lock held
+    private List<CompletableFuture<Permit>> drain() {
+        List<CompletableFuture<Permit>> granted = new ArrayList<>();
+        while (!waiters.isEmpty()) {
+            Waiter next = waiters.peek();
+            if (next.future().isDone()) {
+                waiters.poll();
+                continue;
+            }
+            if (inFlight >= capacityFor(next.priority())) {
+                break; // everything behind it is no more urgent
+            }
+            waiters.poll();
+            inFlight++;
+            granted.add(next.future());
+        }
+        return granted;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueueDepth() {
+        int depth = 0;
+        for (Waiter waiter : waiters) {
+            if (!waiter.future().isDone()) depth++;
+        }
+        return depth;
+    }
+}
@@ -0,0 +1,190 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Tests for the AIMD concurrency limiter in front of LLM calls.
+ * Round-trip times come from a hand-driven clock.
+ *
+ * Run: java -cp bin controller.AdaptiveLimiterTest
+ */
+public class AdaptiveLimiterTest {
+
+    static int passed = 0;
+    static int failed = 0;
+    static long now = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== Adaptive Limiter Tests ===\n");
+
+        testQueuesPastTheLimit();
+        testGrowsWhileLatencyHolds();
+        testBacksOffWhenLatencyClimbs();
+        testBacksOffOnFailure();
+        testCancelledWaitersGiveUpTheirPlace();
+        testHigherPriorityIsServedFirst();
+        testBackgroundLeavesASlotFree();
+        testEarlierDeadlineFirstWithinAClass();
+        testPromotedWaiterSkipsTheBackgroundQueue();
+        testStreamingGivesUpOnAFullLimiter();
+
+        System.out.println("\n=== Results: " + passed + " passed, " + failed + " failed ===");
+        if (failed > 0) System.exit(1);
+    }
+
+    static AdaptiveLimiter newLimiter(int initial) {
+        now = 0;
+        return new AdaptiveLimiter(initial, 1, 32, () -> now);
+    }
+
+    static void testQueuesPastTheLimit() {
+        AdaptiveLimiter limiter = newLimiter(2);
+        CompletableFuture<AdaptiveLimiter.Permit> first = acquire(limiter);
+        acquire(limiter);
+        CompletableFuture<AdaptiveLimiter.Permit> third = acquire(limiter);
+
+        assertTest("Calls past the limit wait", !third.isDone() && limiter.getQueueDepth() == 1);
+        now += 100;
+        first.join().release(AdaptiveLimiter.Outcome.SUCCESS);
+        assertTest("A release hands the slot to the next waiter", third.isDone() && limiter.getQueueDepth() == 0);
+    }
+
+    static void testGrowsWhileLatencyHolds() {
+        AdaptiveLimiter limiter = newLimiter(2);
+        for (int round = 0; round < 20; round++) {
+            runSaturatedRound(limiter, 100);
+        }
+        assertTest("Limit grows while the server keeps up (limit " + limiter.getLimit() + ")", limiter.getLimit() > 2);
+    }
+
+    static void testBacksOffWhenLatencyClimbs() {
+        AdaptiveLimiter limiter = newLimiter(8);
+        runSaturatedRound(limiter, 100); // baseline
+        int before = limiter.getLimit();
+        for (int round = 0; round < 5; round++) {
+            runSaturatedRound(limiter, 500);
+        }
+        assertTest("Limit shrinks once latency passes the tolerance (" + before + " -> " + limiter.getLimit() + ")",
+                limiter.getLimit() < before);
+    }
+
+    static void testBacksOffOnFailure() {
+        AdaptiveLimiter limiter = newLimiter(8);
+        AdaptiveLimiter.Permit permit = acquire(limiter).join();
+        now += 100;
+        permit.release(AdaptiveLimiter.Outcome.FAILURE);
+        assertTest("A failed call cuts the limit", limiter.getLimit() == 6);
+
+        AdaptiveLimiter.Permit ignored = acquire(limiter).join();
+        ignored.release(AdaptiveLimiter.Outcome.IGNORED);
+        ignored.release(AdaptiveLimiter.Outcome.FAILURE);
+        assertTest("Ignored and repeated releases leave it alone", limiter.getLimit() == 6 && limiter.getInFlight() == 0);
+    }
+
+    static void testCancelledWaitersGiveUpTheirPlace() {
+        AdaptiveLimiter limiter = newLimiter(1);
+        AdaptiveLimiter.Permit held = acquire(limiter).join();
+        CompletableFuture<AdaptiveLimiter.Permit> gaveUp = acquire(limiter);
+        gaveUp.cancel(false);
+        CompletableFuture<AdaptiveLimiter.Permit> next = acquire(limiter);
+
+        now += 100;
+        held.release(AdaptiveLimiter.Outcome.SUCCESS);
+        assertTest("Slot skips the cancelled waiter", next.isDone() && limiter.getInFlight() == 1);
+    }
+
+    static void testHigherPriorityIsServedFirst() {
+        AdaptiveLimiter limiter = newLimiter(1);
+        AdaptiveLimiter.Permit held = acquire(limiter).join(); // IGNORED releases below keep the limit fixed
+        CompletableFuture<AdaptiveLimiter.Permit> speculative = limiter.acquire(LLMPriority.SPECULATIVE, Long.MAX_VALUE);
+        CompletableFuture<AdaptiveLimiter.Permit> content = limiter.acquire(LLMPriority.CONTENT, Long.MAX_VALUE);
+        CompletableFuture<AdaptiveLimiter.Permit> interactive = limiter.acquire(LLMPriority.INTERACTIVE, Long.MAX_VALUE);
+
+        held.release(AdaptiveLimiter.Outcome.IGNORED);
+        assertTest("Interactive call jumps the background queue", interactive.isDone() && !content.isDone());
+
+        interactive.join().release(AdaptiveLimiter.Outcome.IGNORED);
+        assertTest("Content is served before speculative work", content.isDone() && !speculative.isDone());
+    }
+
+    static void testBackgroundLeavesASlotFree() {
+        AdaptiveLimiter limiter = newLimiter(3);
+        limiter.acquire(LLMPriority.CONTENT, Long.MAX_VALUE);
+        limiter.acquire(LLMPriority.CONTENT, Long.MAX_VALUE);
+        CompletableFuture<AdaptiveLimiter.Permit> third = limiter.acquire(LLMPriority.CONTENT, Long.MAX_VALUE);
+        CompletableFuture<AdaptiveLimiter.Permit> hint = limiter.acquire(LLMPriority.INTERACTIVE, Long.MAX_VALUE);
+
+        assertTest("World generation stops one short of the limit", !third.isDone());
+        assertTest("The spare slot goes straight to the player", hint.isDone());
+    }
+
+    static void testEarlierDeadlineFirstWithinAClass() {
+        AdaptiveLimiter limiter = newLimiter(1);
+        AdaptiveLimiter.Permit held = acquire(limiter).join();
+        CompletableFuture<AdaptiveLimiter.Permit> late = limiter.acquire(LLMPriority.CHALLENGE, 5_000);
+        CompletableFuture<AdaptiveLimiter.Permit> soon = limiter.acquire(LLMPriority.CHALLENGE, 1_000);
+
+        held.release(AdaptiveLimiter.Outcome.IGNORED);
+        assertTest("Earliest deadline goes first", soon.isDone() && !late.isDone());
+    }
+
+    static void testPromotedWaiterSkipsTheBackgroundQueue() {
+        AdaptiveLimiter limiter = newLimiter(2);
+        limiter.acquire(LLMPriority.CONTENT, Long.MAX_VALUE);
+        CompletableFuture<AdaptiveLimiter.Permit> content = limiter.acquire(LLMPriority.CONTENT, Long.MAX_VALUE);
+        CompletableFuture<AdaptiveLimiter.Permit> prefetch = limiter.acquire(LLMPriority.SPECULATIVE, Long.MAX_VALUE);
+
+        assertTest("Promoted prefetch takes the slot kept for the player",
+                limiter.promote(prefetch, LLMPriority.CHALLENGE) && prefetch.isDone() && !content.isDone());
+        assertTest("A call that is no longer waiting can't be promoted",
+                !limiter.promote(prefetch, LLMPriority.INTERACTIVE) && !limiter.promote(new CompletableFuture<>(), LLMPriority.CHALLENGE));
+    }
+
+    static CompletableFuture<AdaptiveLimiter.Permit> acquire(AdaptiveLimiter limiter) {
+        return limiter.acquire(LLMPriority.INTERACTIVE, Long.MAX_VALUE);
+    }
+
+    // Fills every slot, then completes them all with the given round trip
+    static void runSaturatedRound(AdaptiveLimiter limiter, long rtt) {
+        List<AdaptiveLimiter.Permit> permits = new ArrayList<>();
+        int slots = limiter.getLimit();
+        for (int i = 0; i < slots; i++) {
+            permits.add(acquire(limiter).join());
+        }
+        now += rtt;
+        permits.forEach(permit -> permit.release(AdaptiveLimiter.Outcome.SUCCESS));
+    }
+
+    static void testStreamingGivesUpOnAFullLimiter() {
+        // Nothing listens here; the call must give up before it would connect
+        LLMServiceImpl llm = new LLMServiceImpl(List.of("http://127.0.0.1:9/v1/chat/completions"), "m", 1, 1, false, Map.of());
+        AdaptiveLimiter limiter = llm.getRoute(LLMCallType.NARRATION).getLimiter();
+        List<CompletableFuture<AdaptiveLimiter.Permit>> held = new ArrayList<>();
+        CompletableFuture<AdaptiveLimiter.Permit> next;
+        while ((next = limiter.acquire(LLMPriority.INTERACTIVE, System.nanoTime())).isDone()) {
+            held.add(next);
+        }
+        next.cancel(false);
+
+        long start = System.nanoTime();
+        String narration = llm.generateTextStreaming("sys", "Describe the hall", token -> { });
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTest("Narration stops waiting for a full limiter at its timeout (" + elapsedMillis + " ms)",
+                narration == null && elapsedMillis >= 900 && elapsedMillis < 3000);
+        assertTest("It leaves the queue and holds no permit",
+                limiter.getQueueDepth() == 0 && limiter.getInFlight() == held.size());
+    }
+
+    static void assertTest(String name, boolean condition) {
+        if (condition) {
+            System.out.println("  PASS: " + name);
+            passed++;
+        } else {
+            System.out.println("  FAIL: " + name);
+            failed++;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package controller;
+
+import model.ChallengeDifficulty;
+import model.ChallengeType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Serves repeated world-gen prompts from an on-disk response cache.
+ * Only content calls (generateText / generateContentBatch) are cached; challenges,
+ * evaluations and hints must stay fresh and go straight to the delegate. Only usable replies
+ * are kept, so a reply that missed its schema is asked for again next time instead of replayed.
+ */
+public class CachingLLMService implements LLMService {
+    public enum Mode {
+        FRESH,  // always ask the model, but record what it says
+        CACHED  // answer from the cache when possible
+    }
+
+    private static final char SEPARATOR = '\u0001';
+
+    private final LLMService delegate;
+    private final LLMResponseCache cache;
+    private final String model;
+    private final GenerationProfile profile; // the content calls' sampling settings, part of every key
+    private volatile Mode mode;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public CachingLLMService(LLMService delegate, LLMResponseCache cache, String model, GenerationProfile profile, Mode mode) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.model = model;
+        this.profile = profile;
+        this.mode = mode;
+    }
+
+    private String cacheKey(String systemPrompt, String userPrompt) {
+        return model + SEPARATOR + systemPrompt + SEPARATOR + userPrompt
+                + SEPARATOR + profile.temperature() + SEPARATOR + profile.maxTokens();
+    }
+
+    private String lookup(String key, Predicate<String> usable) {
+        if (mode == Mode.CACHED) {
+            String cached = cache.get(key);
+            if (cached != null && usable.test(cached)) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    // Held to the call's schema; calls without one are content calls and need a name and description
+    private static boolean isUsable(String response, ResponseSchema schema) {
+        return response != null && (schema != null ? schema : ResponseSchema.CONTENT).isSatisfiedBy(response);
+    }
+
+    @Override
+    public String generateText(String systemPrompt, String userPrompt) {
+        return generateText(systemPrompt, userPrompt, null);
+    }
+
+    // The schema only shapes how the answer is written, so it doesn't take part in the key
+    @Override
+    public String generateText(String systemPrompt, String userPrompt, ResponseSchema schema) {
+        String key = cacheKey(systemPrompt, userPrompt);
+        String cached = lookup(key, value -> isUsable(value, schema));
+        if (cached != null) {
+            return cached;
+        }
+
+        String response = delegate.generateText(systemPrompt, userPrompt, schema);
+        if (isUsable(response, schema)) {
+            cache.put(key, response);
+        }
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<String> generateTextAsync(String systemPrompt, String userPrompt) {
+        return generateTextAsync(systemPrompt, userPrompt, LLMPriority.CONTENT);
+    }
+
+    @Override
+    public CompletableFuture<String> generateTextAsync(String systemPrompt, String userPrompt, LLMPriority priority) {
+        return generateTextAsync(systemPrompt, userPrompt, priority, null);
+    }
+
+    @Override
+    public CompletableFuture<String> generateTextAsync(String systemPrompt, String userPrompt,
+                                                       LLMPriority priority, ResponseSchema schema) {
+        String key = cacheKey(systemPrompt, userPrompt);
+        String cached = lookup(key, value -> isUsable(value, schema));
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return delegate.generateTextAsync(systemPrompt, userPrompt, priority, schema).thenApply(response -> {
+            if (isUsable(response, schema)) {
+                cache.put(key, response);
+            }
+            return response;
+        });
+    }
+
+    @Override
+    public String generateTextStreaming(String systemPrompt, String userPrompt, Consumer<String> onToken) {
+        return delegate.generateTextStreaming(systemPrompt, userPrompt, onToken); // narration stays fresh
+    }
+
+    @Override
+    public List<String[]> generateContentBatch(List<ContentSpec> specs) {
+        // Entries are cached per spec, so only the misses go out as a (smaller) batch
+        List<String[]> results = new ArrayList<>(specs.size());
+        List<ContentSpec> missing = new ArrayList<>();
+        List<Integer> missingSlots = new ArrayList<>();
+
+        for (int i = 0; i < specs.size(); i++) {
+            ContentSpec spec = specs.get(i);
+            String cached = lookup(cacheKey("batch:" + spec.kind(), spec.prompt()), value -> value.indexOf(SEPARATOR) >= 0);
+            results.add(cached != null ? cached.split(String.valueOf(SEPARATOR), 2) : null);
+            if (cached == null) {
+                missing.add(spec);
+                missingSlots.add(i);
+            }
+        }
+        if (missing.isEmpty()) {
+            return results;
+        }
+
+        List<String[]> generated = delegate.generateContentBatch(missing);
+        for (int i = 0; i < generated.size() && i < missing.size(); i++) {
+            String[] content = generated.get(i);
+            if (content == null || content[0] == null || content[1] == null) continue;
+            ContentSpec spec = missing.get(i);
+            cache.put(cacheKey("batch:" + spec.kind(), spec.prompt()), content[0] + SEPARATOR + content[1]);
+            results.set(missingSlots.get(i), content);
+        }
+        return results;
+    }
+
+    @Override
+    public String generateChallenge(ChallengeType type, ChallengeDifficulty difficulty, String context) {
+        return delegate.generateChallenge(type, difficulty, context);
+    }
+
+    @Override
+    public String generateChallenge(String challengePrompt) {
+        return delegate.generateChallenge(challengePrompt);
+    }
+
+    @Override
+    public String evaluateResponse(String playerResponse, String expectedPattern, String challengeContext) {
+        return delegate.evaluateResponse(playerResponse, expectedPattern, challengeContext);
+    }
+
+    @Override
+    public String generateHint(String challengePrompt, String expectedAnswer, int hintLevel) {
+        return delegate.generateHint(challengePrompt, expectedAnswer, hintLevel);
+    }
+
+    @Override
+    public CompletableFuture<String> generateChallengeAsync(String challengePrompt) {
+        return delegate.generateChallengeAsync(challengePrompt);
+    }
+
+    @Override
+    public CompletableFuture<String> generateChallengeAsync(String challengePrompt, LLMPriority priority) {
+        return delegate.generateChallengeAsync(challengePrompt, priority);
+    }
+
+    // Challenge prefetches are never cached, so the call being promoted is always the delegate's
+    @Override
+    public boolean promote(CompletableFuture<String> call, LLMPriority priority) {
+        return delegate.promote(call, priority);
+    }
+
+    @Override
+    public CompletableFuture<String> evaluateResponseAsync(String playerResponse, String expectedPattern, String challengeContext) {
+        return delegate.evaluateResponseAsync(playerResponse, expectedPattern, challengeContext);
+    }
+
+    @Override
+    public CompletableFuture<String> generateHintAsync(String challengePrompt, String expectedAnswer, int hintLevel) {
+        return delegate.generateHintAsync(challengePrompt, expectedAnswer, hintLevel);
+    }
+
+    @Override
+    public Map<String, String> parseJsonResponse(String json) {
+        return delegate.parseJsonResponse(json);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return delegate.isAvailable();
+    }
+
+    @Override
+    public DegradationTier getDegradationTier() {
+        return delegate.getDegradationTier();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isAvailableAsync() {
+        return delegate.isAvailableAsync();
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public LLMResponseCache getCache() {
+        return cache;
+    }
+
+    // Cached content-batch answers as (kind, {name, description}), whatever model gave them
+    public void forEachCachedContent(BiConsumer<String, String[]> action) {
+        String separator = String.valueOf(SEPARATOR);
+        cache.forEach((key, value) -> {
+            String[] parts = key.split(separator, -1); // model, system prompt, user prompt, temperature, max tokens
+            String[] content = value.split(separator, 2);
+            if (parts.length == 5 && parts[1].startsWith("batch:") && content.length == 2) {
+                action.accept(parts[1].substring("batch:".length()), content);
+            }
+        });
+    }
+}
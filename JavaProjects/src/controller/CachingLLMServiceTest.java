@@ -0,0 +1,199 @@
+package controller;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Tests for the on-disk LLM response cache and its LLMService decorator.
+ *
+ * Run: java -cp bin controller.CachingLLMServiceTest
+ */
+public class CachingLLMServiceTest {
+
+    static int passed = 0;
+    static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== LLM Response Cache Tests ===\n");
+
+        testRepeatedPromptIsServedFromCache();
+        testEntriesSurviveReopen();
+        testSizeCapEvictsLeastRecentlyUsed();
+        testFreshModeAlwaysAsksModel();
+        testBatchOnlySendsMisses();
+        testCachedContentCanBeListed();
+        testUnusableRepliesAreNotCached();
+        testSamplingSettingsAreInTheKey();
+        testPromotionReachesTheDelegate();
+
+        System.out.println("\n=== Results: " + passed + " passed, " + failed + " failed ===");
+        if (failed > 0) System.exit(1);
+    }
+
+    static final GenerationProfile CONTENT = GenerationProfile.defaultFor(LLMCallType.CONTENT);
+
+    static void testRepeatedPromptIsServedFromCache() throws Exception {
+        CountingLLMService llm = new CountingLLMService();
+        CachingLLMService cached = new CachingLLMService(llm, newCache(64 * 1024), "m", CONTENT, CachingLLMService.Mode.CACHED);
+
+        String first = cached.generateText("sys", "A rusty potion");
+        String second = cached.generateText("sys", "A rusty potion");
+
+        assertTest("Second identical prompt does not reach the model", llm.textCalls == 1);
+        assertTest("Cached response matches the original", first.equals(second));
+        assertTest("Counters record one hit and one miss", cached.getHits() == 1 && cached.getMisses() == 1);
+    }
+
+    static void testEntriesSurviveReopen() throws Exception {
+        Path file = Files.createTempFile("llm-cache", ".bin");
+        file.toFile().deleteOnExit();
+        LLMResponseCache cache = new LLMResponseCache(file, 64 * 1024);
+        cache.put("key", "value");
+        cache.put("key", "newer value");
+        cache.flush();
+
+        LLMResponseCache reopened = new LLMResponseCache(file, 64 * 1024);
+        assertTest("Latest value survives reopening the file", "newer value".equals(reopened.get("key")));
+        assertTest("Overwritten key is indexed once", reopened.size() == 1);
+    }
+
+    static void testSizeCapEvictsLeastRecentlyUsed() throws Exception {
+        LLMResponseCache cache = newCache(4096);
+        String value = "x".repeat(200);
+        for (int i = 0; i < 50; i++) {
+            cache.put("key" + i, value);
+            cache.get("key0"); // keep one entry hot
+        }
+
+        assertTest("File never grows past the cap", cache.getUsedBytes() <= cache.getCapacity());
+        assertTest("Recently used entry survives eviction", cache.get("key0") != null);
+        assertTest("Old cold entry is evicted", cache.get("key1") == null);
+        assertTest("Newest entry is present", cache.get("key49") != null);
+    }
+
+    static void testFreshModeAlwaysAsksModel() throws Exception {
+        CountingLLMService llm = new CountingLLMService();
+        CachingLLMService cached = new CachingLLMService(llm, newCache(64 * 1024), "m", CONTENT, CachingLLMService.Mode.FRESH);
+
+        cached.generateText("sys", "A sturdy weapon");
+        cached.generateText("sys", "A sturdy weapon");
+        assertTest("Fresh mode skips cache reads", llm.textCalls == 2);
+
+        cached.setMode(CachingLLMService.Mode.CACHED);
+        cached.generateText("sys", "A sturdy weapon");
+        assertTest("Fresh mode still recorded responses", llm.textCalls == 2);
+    }
+
+    static void testBatchOnlySendsMisses() throws Exception {
+        CountingLLMService llm = new CountingLLMService();
+        CachingLLMService cached = new CachingLLMService(llm, newCache(64 * 1024), "m", CONTENT, CachingLLMService.Mode.CACHED);
+
+        cached.generateContentBatch(List.of(new ContentSpec("room", "a"), new ContentSpec("room", "b")));
+        List<String[]> results = cached.generateContentBatch(List.of(
+                new ContentSpec("room", "a"), new ContentSpec("room", "c"), new ContentSpec("room", "b")));
+
+        assertTest("Only the uncached spec is sent", llm.lastBatchSize == 1);
+        assertTest("Results keep request order",
+                results.get(0)[0].equals("name:a") && results.get(1)[0].equals("name:c") && results.get(2)[0].equals("name:b"));
+    }
+
+    static void testCachedContentCanBeListed() throws Exception {
+        CachingLLMService cached = new CachingLLMService(new CountingLLMService(), newCache(64 * 1024), "m", CONTENT, CachingLLMService.Mode.CACHED);
+        cached.generateContentBatch(List.of(new ContentSpec("monster", "a"), new ContentSpec("weapon", "b")));
+        cached.generateText("system", "not content");
+
+        List<String> listed = new ArrayList<>();
+        cached.forEachCachedContent((kind, content) -> listed.add(kind + "=" + content[0] + "/" + content[1]));
+        assertTest("Batch answers are listed with their kind, other entries are not",
+                listed.size() == 2 && listed.contains("monster=name:a/desc:a") && listed.contains("weapon=name:b/desc:b"));
+    }
+
+    static void testUnusableRepliesAreNotCached() throws Exception {
+        CountingLLMService llm = new CountingLLMService();
+        CachingLLMService cached = new CachingLLMService(llm, newCache(64 * 1024), "m", CONTENT, CachingLLMService.Mode.CACHED);
+
+        cached.generateText("sys", "prose: a dark room");
+        cached.generateText("sys", "prose: a dark room");
+        assertTest("Prose reply is asked for again", llm.textCalls == 2);
+
+        cached.generateTextAsync("sys", "A grim theme", LLMPriority.CONTENT, ResponseSchema.THEME).join();
+        cached.generateTextAsync("sys", "A grim theme", LLMPriority.CONTENT, ResponseSchema.THEME).join();
+        assertTest("Reply missing its schema's keys is asked for again", llm.textCalls == 4);
+
+        cached.generateText("sys", "A rusty potion", ResponseSchema.CONTENT);
+        cached.generateText("sys", "A rusty potion", ResponseSchema.CONTENT);
+        assertTest("Reply that fits its schema is cached", llm.textCalls == 5);
+    }
+
+    static void testSamplingSettingsAreInTheKey() throws Exception {
+        CountingLLMService llm = new CountingLLMService();
+        LLMResponseCache cache = newCache(64 * 1024);
+        new CachingLLMService(llm, cache, "m", CONTENT, CachingLLMService.Mode.CACHED).generateText("sys", "A rusty potion");
+
+        new CachingLLMService(llm, cache, "m", new GenerationProfile(CONTENT.maxTokens(), 1.2, 60, List.of()),
+                CachingLLMService.Mode.CACHED).generateText("sys", "A rusty potion");
+        new CachingLLMService(llm, cache, "m", new GenerationProfile(40, CONTENT.temperature(), 60, List.of()),
+                CachingLLMService.Mode.CACHED).generateText("sys", "A rusty potion");
+        assertTest("Another temperature or token budget is asked afresh", llm.textCalls == 3);
+    }
+
+    static void testPromotionReachesTheDelegate() throws Exception {
+        CountingLLMService llm = new CountingLLMService();
+        CachingLLMService cached = new CachingLLMService(llm, newCache(64 * 1024), "m", CONTENT, CachingLLMService.Mode.CACHED);
+        CompletableFuture<String> prefetch = new CompletableFuture<>();
+
+        boolean promoted = cached.promote(prefetch, LLMPriority.CHALLENGE);
+        assertTest("Promoting a prefetch is passed to the delegate",
+                promoted && llm.promoted == prefetch && llm.promotedTo == LLMPriority.CHALLENGE);
+    }
+
+    static LLMResponseCache newCache(int maxBytes) throws Exception {
+        Path file = Files.createTempFile("llm-cache", ".bin");
+        file.toFile().deleteOnExit();
+        return new LLMResponseCache(file, maxBytes);
+    }
+
+    // === Stub LLM that counts calls and echoes prompts ===
+    static class CountingLLMService extends MapBuilderTest.FailingLLMService {
+        int textCalls = 0;
+        int lastBatchSize = 0;
+        CompletableFuture<String> promoted;
+        LLMPriority promotedTo;
+
+        @Override
+        public boolean promote(CompletableFuture<String> call, LLMPriority priority) {
+            promoted = call;
+            promotedTo = priority;
+            return true;
+        }
+
+        @Override
+        public String generateText(String s, String u) {
+            textCalls++;
+            return u.startsWith("prose:") ? u : "{\"name\":\"" + u + "\", \"description\":\"desc\"}";
+        }
+
+        @Override
+        public List<String[]> generateContentBatch(List<ContentSpec> specs) {
+            lastBatchSize = specs.size();
+            List<String[]> results = new ArrayList<>();
+            for (ContentSpec spec : specs) {
+                results.add(new String[]{"name:" + spec.prompt(), "desc:" + spec.prompt()});
+            }
+            return results;
+        }
+    }
+
+    static void assertTest(String name, boolean condition) {
+        if (condition) {
+            System.out.println("  PASS: " + name);
+            passed++;
+        } else {
+            System.out.println("  FAIL: " + name);
+            failed++;
+        }
+    }
+}
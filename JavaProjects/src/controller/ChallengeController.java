@@ -5,14 +5,23 @@ import controller.error.ChallengeNotActive;
 import model.*;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ChallengeController {
+    // One per exit is all enterRoom can ever ask for
+    private static final int MAX_PREFETCHED = Directions.values().length;
+
     private LLMService llmService;
     private ChallengeEvaluator challengeEvaluator;
     private ConsoleView view;
     private GameState gameState;
 
-    private Challenge activeChallenge;
+    private volatile Challenge activeChallenge; // the timer thread can end it
+    // Held for every change to activeChallenge, so a timeout can't land halfway through one
+    private final Object lifecycle = new Object();
     private ChallengeContext currentContext;
     private Timer challengeTimer;
 
@@ -21,6 +30,27 @@ public class ChallengeController {
 
     private boolean allowHints;
 
+    // Pre-generated riddles to use when the LLM fails to write one
+    private ContentLibrary library;
+    private String libraryTheme;
+    private final Random random = new Random();
+
+    // Evaluations and hints the player is waiting on; cancelled if the challenge ends first
+    private final Set<CompletableFuture<String>> pendingCalls = ConcurrentHashMap.newKeySet();
+
+    // Exploration challenges generated ahead of time for rooms next to the player, keyed by room id
+    private record PrefetchedChallenge(ChallengeType type, CompletableFuture<String> response) {}
+    private final Map<Integer, PrefetchedChallenge> prefetched = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, PrefetchedChallenge> eldest) {
+            if (size() > MAX_PREFETCHED) {
+                eldest.getValue().response().cancel(true);
+                return true;
+            }
+            return false;
+        }
+    };
+
     public ChallengeController(LLMService llm, ConsoleView v, GameState st , ChallengeEvaluator ec) {
         llmService = llm;
         view = v;
@@ -31,12 +61,14 @@ public class ChallengeController {
         }
     }
 
+    public void setLibrary(ContentLibrary library, String theme) {
+        this.library = library;
+        this.libraryTheme = theme;
+    }
+
     public void initiateChallenge(Room room, ChallengeType type) {
-        if (!llmService.isAvailable()) {
-            view.displayError("LLM server is offline. Go touch some grass.");
-            return;
-        }
-        if(activeChallenge != null && !activeChallenge.isChallengeCompleted()) {
+        Challenge current = activeChallenge;
+        if(current != null && !current.isChallengeCompleted()) {
             throw new ChallengeAlreadyComplete("A challenge is already active");
         }
         if(type == null) {
@@ -46,28 +78,97 @@ public class ChallengeController {
                 case SAFE -> ChallengeType.PUZZLE;
             };
         }
+        // Answered from the circuit breaker, so this costs no round trip
+        if (!llmService.isAvailable()) {
+            view.displayError("LLM server is offline. Go touch some grass.");
+            return;
+        }
         currentContext = buildContext(room , type);
-        generateChallenge(currentContext);
-        if (activeChallenge == null) {
-            view.displayError("LLM failed to generate a challenge. Go touch some grass.");
+        String llmPrompt = currentContext.buildLLMPrompt();
+
+        CompletableFuture<String> generation = takePrefetched(room, type);
+        if (generation != null) {
+            // A prefetch that came back empty still gets a fresh attempt
+            generation = generation.thenCompose(response -> response != null
+                    ? CompletableFuture.completedFuture(response)
+                    : llmService.generateChallengeAsync(llmPrompt));
+        } else {
+            generation = llmService.generateChallengeAsync(llmPrompt);
+        }
+        String response = generation.exceptionally(e -> null).join();
+        if (response == null) {
+            response = libraryRiddle(type);
+        }
+        synchronized (lifecycle) {
+            Challenge challenge = generateChallenge(currentContext, response);
+            if (challenge == null) {
+                currentContext = null;
+                // The failed call may itself have tripped the breaker
+                view.displayError(llmService.isAvailable()
+                        ? "LLM failed to generate a challenge. Go touch some grass."
+                        : "LLM server is offline. Go touch some grass.");
+                return;
+            }
+            challenge.setChallengeState(ChallengeState.ACTIVE);
+        }
+    }
+
+    // Starts writing the challenge for a room next door, queued behind everything the player waits on
+    public void prefetchChallenge(Room room, ChallengeType type) {
+        if (prefetched.containsKey(room.getId()) || !llmService.isAvailable()) {
             return;
         }
-        activeChallenge.setChallengeState(ChallengeState.ACTIVE);
+        String llmPrompt = buildContext(room, type).buildLLMPrompt();
+        prefetched.put(room.getId(), new PrefetchedChallenge(type,
+                llmService.generateChallengeAsync(llmPrompt, LLMPriority.SPECULATIVE)));
+    }
+
+    // Drops (and cancels) prefetches for rooms that are no longer candidates
+    public void retainPrefetched(Collection<Room> rooms) {
+        Set<Integer> keep = new HashSet<>();
+        for (Room room : rooms) {
+            keep.add(room.getId());
+        }
+        prefetched.entrySet().removeIf(entry -> {
+            if (keep.contains(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().response().cancel(true);
+            return true;
+        });
     }
 
+    public ChallengeType getPrefetchedType(Room room) {
+        PrefetchedChallenge entry = prefetched.get(room.getId());
+        return entry != null ? entry.type() : null;
+    }
 
+    private CompletableFuture<String> takePrefetched(Room room, ChallengeType type) {
+        PrefetchedChallenge entry = prefetched.remove(room.getId());
+        if (entry == null) {
+            return null;
+        }
+        if (entry.type() != type) {
+            entry.response().cancel(true);
+            return null;
+        }
+        // The player is waiting on it now, so it no longer queues behind world generation
+        llmService.promote(entry.response(), LLMPriority.CHALLENGE);
+        return entry.response().exceptionally(e -> null);
+    }
 
     public void submitResponse(String response) {
-        if(activeChallenge.getChallengeState() != ChallengeState.ACTIVE) {
+        Challenge challenge = activeChallenge;
+        if(challenge == null || challenge.getChallengeState() != ChallengeState.ACTIVE) {
             throw new ChallengeNotActive("Cannot respond to not Active challenge");
         }
-        if(activeChallenge.hasTimedOut()) {
+        if(challenge.hasTimedOut()) {
             view.displayMessage("Challenge opportunity has passed");
-            handleTimeout();
+            handleTimeout(challenge);
             return;
         }
-        activeChallenge.recordResponse(response);
-        evaluateResponse(response);
+        challenge.recordResponse(response);
+        evaluateResponse(challenge, response);
     }
 
     public void requiresHint(int level) {
@@ -77,19 +178,27 @@ public class ChallengeController {
         }
         int cost = calculateHintCost(level);
 
-        String hint = generateHint(level);
-        view.displayHint(hint , cost);
-        activeChallenge.incrementHints();
-
-        double deduct = switch (gameState.getDifficulty()) {
-            case EASY -> 0.05;
-            case MEDIUM -> 0.08;
-            case HARD -> 0.12;
-            case ULTRA -> 0.18;
-        };
-        double xp = activeChallenge.getbaseXP();
-        activeChallenge.setbaseXP(xp - xp * deduct);
-
+        Challenge challenge = activeChallenge;
+        if (challenge == null) {
+            return;
+        }
+        String hint = generateHint(challenge, level);
+        synchronized (lifecycle) {
+            if (activeChallenge != challenge) {
+                return; // ran out of time while the hint was being written
+            }
+            view.displayHint(hint , cost);
+            challenge.incrementHints();
+
+            double deduct = switch (gameState.getDifficulty()) {
+                case EASY -> 0.05;
+                case MEDIUM -> 0.08;
+                case HARD -> 0.12;
+                case ULTRA -> 0.18;
+            };
+            double xp = challenge.getbaseXP();
+            challenge.setbaseXP(xp - xp * deduct);
+        }
     }
 
     //Challenge Context Building for LLM
@@ -114,32 +223,43 @@ public class ChallengeController {
     }
 
     //ChallengeLifeCycle
-    private void generateChallenge(ChallengeContext context) {
-        String llmPrompt = context.buildLLMPrompt();
-        String llmResponse = llmService.generateChallenge(llmPrompt);
+    // Called holding lifecycle; the new active challenge, or null if the response had none
+    private Challenge generateChallenge(ChallengeContext context, String llmResponse) {
         if (llmResponse == null) {
             activeChallenge = null;
-            return;
+            return null;
         }
         // Parse JSON response
         Map<String, String> parsed = llmService.parseJsonResponse(llmResponse);
         if (parsed.get("prompt") == null) {
             activeChallenge = null;
-            return;
+            return null;
         }
-        activeChallenge = new Challenge(
+        Challenge challenge = new Challenge(
                 context.getChallengeType(),
                 parsed.get("prompt"),
                 mapGameToChallengeDifficulty(gameState.getDifficulty())
         );
-        activeChallenge.addMetaData("hint1", parsed.get("hint1"));
-        activeChallenge.addMetaData("hint2", parsed.get("hint2"));
-        activeChallenge.addMetaData("hint3", parsed.get("hint3"));
-        activeChallenge.addMetaData("expectedPattern", parsed.get("expectedAnswerPattern"));
-        activeChallenge.addMetaData("desc", parsed.get("desc"));
+        challenge.addMetaData("hint1", parsed.get("hint1"));
+        challenge.addMetaData("hint2", parsed.get("hint2"));
+        challenge.addMetaData("hint3", parsed.get("hint3"));
+        challenge.addMetaData("expectedPattern", parsed.get("expectedAnswerPattern"));
+        challenge.addMetaData("desc", parsed.get("desc"));
+
+        activeChallenge = challenge;
+        presentChallenge(challenge);
+        startChallengeTimer(challenge, challenge.getTimeLimit());
+        return challenge;
+    }
 
-        presentChallenge(activeChallenge);
-        startChallengeTimer(activeChallenge.getTimeLimit());
+    // Answers are still judged by the LLM, so this only stands in while the server is up
+    private String libraryRiddle(ChallengeType type) {
+        if (library == null || type != ChallengeType.RIDDLE) {
+            return null;
+        }
+        String category = ContentLibrary.riddleCategory(mapGameToChallengeDifficulty(gameState.getDifficulty()));
+        String riddle = library.sample(libraryTheme, category, random);
+        return riddle != null ? riddle : library.sample(null, category, random);
     }
 
     private void presentChallenge(Challenge challenge) {
@@ -147,28 +267,34 @@ public class ChallengeController {
         challenge.activate();
     }
 
-    private void evaluateResponse(String response) {
-        activeChallenge.startEval();
-        ChallengeResult result = determineEvaluationMethod(response);
-        if (result.isSuccess()) {
-            activeChallenge.complete(true, result.getFeedback());
-            applyConsequences(result);
-            completeChallenge();
-        } else {
-            activeChallenge.decrementAttempts();
-            view.displayResult(activeChallenge , result);
-            if (!activeChallenge.hasAttemptsRemaining()) {
-                result = new ChallengeResult(false, "No attempts remaining").withDamage(0, calculateDamage(activeChallenge, 0));
-                applyConsequences(result);
-                completeChallenge();
+    private void evaluateResponse(Challenge challenge, String response) {
+        challenge.startEval();
+        // Waits outside the lock, so the timer can still end the challenge and cancel the call
+        ChallengeResult result = determineEvaluationMethod(challenge, response);
+        synchronized (lifecycle) {
+            if (result == null || activeChallenge != challenge) {
+                return; // timed out while the answer was being judged
+            }
+            if (result.isSuccess()) {
+                challenge.complete(true, result.getFeedback());
+                applyConsequences(challenge, result);
+                completeChallenge(challenge);
             } else {
-                // Return to ACTIVE so player can try again
-                activeChallenge.setChallengeState(ChallengeState.ACTIVE);
+                challenge.decrementAttempts();
+                view.displayResult(challenge , result);
+                if (!challenge.hasAttemptsRemaining()) {
+                    result = new ChallengeResult(false, "No attempts remaining").withDamage(0, calculateDamage(challenge, 0));
+                    applyConsequences(challenge, result);
+                    completeChallenge(challenge);
+                } else {
+                    // Return to ACTIVE so player can try again
+                    challenge.setChallengeState(ChallengeState.ACTIVE);
+                }
             }
         }
     }
 
-    private void applyConsequences(ChallengeResult result) {
+    private void applyConsequences(Challenge challenge, ChallengeResult result) {
         Player player = gameState.getPlayer();
         if(result.getXpAwarded() > 0) {
             player.addXP(result.getXpAwarded());
@@ -181,31 +307,36 @@ public class ChallengeController {
                 player.addInventory(item);
             }
         }
-        view.displayResult(activeChallenge , result);
+        view.displayResult(challenge , result);
     }
 
-    private void completeChallenge() {
+    // Called holding lifecycle
+    private void completeChallenge(Challenge challenge) {
+        activeChallenge = null; // first, so a call registered after the cancel below sees it ended
         cancelTimer();
-        activeChallenge.resolve();
-        recordCompletedChallenge(activeChallenge);
-        activeChallenge = null;
+        cancelPendingCalls();
+        challenge.resolve();
+        recordCompletedChallenge(challenge);
         currentContext = null;
     }
 
     public void abortChallenge() {
-        if (activeChallenge == null) {
-            return;
+        synchronized (lifecycle) {
+            Challenge challenge = activeChallenge;
+            if (challenge == null) {
+                return;
+            }
+            cancelTimer();
+            ChallengeResult abortResult = new ChallengeResult(false, "Challenge abandoned")
+                    .withDamage(0, calculateDamage(challenge, 0) / 2);
+            applyConsequences(challenge, abortResult);
+            challenge.complete(false, "Aborted by player");
+            completeChallenge(challenge);
         }
-        cancelTimer();
-        ChallengeResult abortResult = new ChallengeResult(false, "Challenge abandoned")
-                .withDamage(0, calculateDamage(activeChallenge, 0) / 2);
-        applyConsequences(abortResult);
-        activeChallenge.complete(false, "Aborted by player");
-        completeChallenge();
     }
 
-    private ChallengeResult determineEvaluationMethod(String response) {
-        return evaluateWithLLM(response);
+    private ChallengeResult determineEvaluationMethod(Challenge challenge, String response) {
+        return evaluateWithLLM(challenge, response);
     }
 
     private boolean isCreativeType(ChallengeType type) {
@@ -215,16 +346,20 @@ public class ChallengeController {
                 || type == ChallengeType.NEGOTIATION;
     }
 
-    private ChallengeResult evaluateWithLLM(String response) {
-        String expectedPattern = activeChallenge.getMetaData("expectedPattern");
-        String challengePrompt = activeChallenge.getPrompt();
+    // null if the challenge ended before the verdict came back
+    private ChallengeResult evaluateWithLLM(Challenge challenge, String response) {
+        String expectedPattern = challenge.getMetaData("expectedPattern");
+        String challengePrompt = challenge.getPrompt();
 
         // Force creative evaluation for creative challenge types
-        if (isCreativeType(activeChallenge.getType()) && (expectedPattern == null || !expectedPattern.startsWith("CREATIVE:"))) {
+        if (isCreativeType(challenge.getType()) && (expectedPattern == null || !expectedPattern.startsWith("CREATIVE:"))) {
             expectedPattern = "CREATIVE: evaluate reasoning quality, creativity, and effort. Award FULL for thoughtful responses, PARTIAL for brief responses, NONE for nonsense.";
         }
 
-        String llmEval = llmService.evaluateResponse(response, expectedPattern, challengePrompt);
+        String llmEval = await(challenge, llmService.evaluateResponseAsync(response, expectedPattern, challengePrompt));
+        if (activeChallenge != challenge) {
+            return null;
+        }
         if (llmEval == null) {
             view.displayError("LLM evaluation failed. Challenge cannot be scored.");
             return new ChallengeResult(false, "LLM offline — challenge evaluation unavailable - touch grass");
@@ -232,9 +367,9 @@ public class ChallengeController {
         ChallengeResult result = challengeEvaluator.parseEvaluation(llmEval);
 
         int effectiveness = result.getEffectivenessRating();
-        return result.withXP(calculateXPReward(activeChallenge, effectiveness))
-                .withDamage(calculateDamage(activeChallenge, effectiveness), 0)
-                .withItems(determineItemRewards(activeChallenge));
+        return result.withXP(calculateXPReward(challenge, effectiveness))
+                .withDamage(calculateDamage(challenge, effectiveness), 0)
+                .withItems(determineItemRewards(challenge));
     }
 
     // Reward Calculation
@@ -268,7 +403,7 @@ public class ChallengeController {
             case ULTRA -> 0.5;
         };
         if(Math.random() < dropchance) {
-            Item reward = generateRewardItem(challenge.getType());
+            Item reward = generateRewardItem(challenge.getType(), challenge.getDifficulty());
             if (reward != null) {
                 rewards.add(reward);
             }
@@ -277,15 +412,51 @@ public class ChallengeController {
     }
 
     // Hint System
-    private String generateHint(int level) {
+    private String generateHint(Challenge challenge, int level) {
         String hintKey = "hint"+level;
-        String storedHint = activeChallenge.getMetaData(hintKey);
+        String storedHint = challenge.getMetaData(hintKey);
         if(storedHint != null && !storedHint.isEmpty()) {
             return storedHint;
         }
+        if (llmService.getDegradationTier() != DegradationTier.FULL) {
+            return fallbackHint(challenge, level); // the LLM is backed up; a plainer hint now beats a better one later
+        }
         //generate hint through LLM
-        String expectedAnswer = activeChallenge.getMetaData("expectedPattern");
-        return llmService.generateHint(activeChallenge.getPrompt(), expectedAnswer, level);
+        String expectedAnswer = challenge.getMetaData("expectedPattern");
+        return await(challenge, llmService.generateHintAsync(challenge.getPrompt(), expectedAnswer, level));
+    }
+
+    // Blocks on a call the player is waiting for; null if it failed, was cancelled or the challenge ended
+    private String await(Challenge challenge, CompletableFuture<String> call) {
+        pendingCalls.add(call);
+        if (activeChallenge != challenge) {
+            call.cancel(true); // ended before the call was registered, so cancelPendingCalls missed it
+        }
+        try {
+            return call.join();
+        } catch (CancellationException | CompletionException e) {
+            return null;
+        } finally {
+            pendingCalls.remove(call);
+        }
+    }
+
+    // Closes the connections too, so the server stops generating an answer nobody will read
+    private void cancelPendingCalls() {
+        for (CompletableFuture<String> call : pendingCalls) {
+            call.cancel(true);
+        }
+    }
+
+    // Nearest hint the challenge came with, gentler ones first; a generic nudge if it has none
+    private String fallbackHint(Challenge challenge, int level) {
+        for (int other : new int[] {level - 1, level - 2, level + 1, level + 2}) {
+            String storedHint = challenge.getMetaData("hint" + other);
+            if (storedHint != null && !storedHint.isEmpty()) {
+                return storedHint;
+            }
+        }
+        return "Read the challenge again slowly. Every word in it is there for a reason.";
     }
 
     private int calculateHintCost(int level) {
@@ -307,29 +478,32 @@ public class ChallengeController {
     }
 
     // TimeOut Handlings
-    private void startChallengeTimer(int seconds) {
+    private void startChallengeTimer(Challenge challenge, int seconds) {
         cancelTimer(); // cancel existing timer
         challengeTimer = new Timer();
         challengeTimer.schedule(new TimerTask() {
             @Override
             public void run() {
-                handleTimeout();
+                handleTimeout(challenge);
             }
         } , seconds * 1000L);
     }
 
-    private void handleTimeout() {
-        if (activeChallenge == null) {
-            return;
-        }
-        view.displayMessage("Time's up!");
+    // Ends the given challenge unless it has already ended; a late timer never touches the next one
+    private void handleTimeout(Challenge challenge) {
+        synchronized (lifecycle) {
+            if (challenge == null || activeChallenge != challenge) {
+                return;
+            }
+            view.displayMessage("Time's up!");
 
-        ChallengeResult timeoutResult = new ChallengeResult(false, "Challenge timed out")
-                .withDamage(0, calculateDamage(activeChallenge, 0));
+            ChallengeResult timeoutResult = new ChallengeResult(false, "Challenge timed out")
+                    .withDamage(0, calculateDamage(challenge, 0));
 
-        activeChallenge.complete(false, "Timed out");
-        applyConsequences(timeoutResult);
-        completeChallenge();
+            challenge.complete(false, "Timed out");
+            applyConsequences(challenge, timeoutResult);
+            completeChallenge(challenge);
+        }
     }
 
     private void cancelTimer() {
@@ -340,8 +514,9 @@ public class ChallengeController {
     }
 
     public boolean hasActiveChallenge() {
-        return activeChallenge != null &&
-                activeChallenge.getChallengeState() == ChallengeState.ACTIVE;
+        Challenge challenge = activeChallenge;
+        return challenge != null &&
+                challenge.getChallengeState() == ChallengeState.ACTIVE;
     }
 
     public Challenge getActiveChallenge() {
@@ -349,8 +524,9 @@ public class ChallengeController {
     }
 
     public ChallengeState getCurrentState() {
-        return activeChallenge != null ?
-                activeChallenge.getChallengeState() :
+        Challenge challenge = activeChallenge;
+        return challenge != null ?
+                challenge.getChallengeState() :
                 ChallengeState.NONE;
     }
 
@@ -383,27 +559,31 @@ public class ChallengeController {
     }
 
     public ChallengeSnapshot saveState() {
-        if (activeChallenge == null) {
+        Challenge challenge = activeChallenge;
+        if (challenge == null) {
             return null;
         }
-        return activeChallenge.createSnapshot();
+        return challenge.createSnapshot();
     }
 
     public void loadState(ChallengeSnapshot snapshot) {
-        if (snapshot == null) {
-            activeChallenge = null;
-            return;
-        }
-
-        activeChallenge = Challenge.fromSnapshot(snapshot);
+        synchronized (lifecycle) {
+            if (snapshot == null) {
+                activeChallenge = null;
+                return;
+            }
 
-        if (activeChallenge.getChallengeState() == ChallengeState.ACTIVE) {
-            long elapsed = activeChallenge.getElapsedTime();
-            int remaining = activeChallenge.getTimeLimit() - (int) elapsed;
-            if (remaining > 0) {
-                startChallengeTimer(remaining);
-            } else {
-                handleTimeout();
+            Challenge challenge = Challenge.fromSnapshot(snapshot);
+            activeChallenge = challenge;
+
+            if (challenge.getChallengeState() == ChallengeState.ACTIVE) {
+                long elapsed = challenge.getElapsedTime();
+                int remaining = challenge.getTimeLimit() - (int) elapsed;
+                if (remaining > 0) {
+                    startChallengeTimer(challenge, remaining);
+                } else {
+                    handleTimeout(challenge);
+                }
             }
         }
     }
@@ -419,10 +599,7 @@ public class ChallengeController {
     }
 
     // Generate reward item based on challenge type
-    private Item generateRewardItem(ChallengeType type) {ChallengeDifficulty diff = activeChallenge != null
-                ? activeChallenge.getDifficulty()
-                : ChallengeDifficulty.EASY;
-
+    private Item generateRewardItem(ChallengeType type, ChallengeDifficulty diff) {
         return switch (type) {
             case RIDDLE, MORAL_DILEMMA -> {
                 int xp = switch (diff) {
@@ -457,6 +634,8 @@ public class ChallengeController {
     }
 
     public void setActiveChallenge(Challenge challenge) {
-        this.activeChallenge = challenge;
+        synchronized (lifecycle) {
+            this.activeChallenge = challenge;
+        }
     }
 }
\ No newline at end of file
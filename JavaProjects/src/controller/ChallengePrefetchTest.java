@@ -0,0 +1,172 @@
+package controller;
+
+import model.*;
+import view.ConsoleViewImpl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Tests for exploration challenges generated ahead of time for the rooms next to the player.
+ *
+ * Run: java -cp bin controller.ChallengePrefetchTest
+ */
+public class ChallengePrefetchTest {
+
+    static int passed = 0;
+    static int failed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== Challenge Prefetch Tests ===\n");
+
+        testPrefetchIsSpeculative();
+        testEnteringUsesAndPromotesPrefetch();
+        testOtherTypeIsAskedAfresh();
+        testEmptyPrefetchIsRetried();
+        testDroppedRoomsAreCancelled();
+
+        System.out.println("\n=== Results: " + passed + " passed, " + failed + " failed ===");
+        if (failed > 0) System.exit(1);
+    }
+
+    static Room room(int id) {
+        return new Room(id, "Room " + id, "A quiet room", RoomType.NORMAL);
+    }
+
+    static ChallengeController newController(RecordingLLMService llm, Room... rooms) {
+        Player player = new Player("Tester");
+        GameState gs = new GameState(GameDifficulty.EASY);
+        Map<Integer, Room> worldMap = new HashMap<>();
+        for (Room room : rooms) {
+            worldMap.put(room.getId(), room);
+        }
+        gs.initialize(player, rooms[0], worldMap);
+        return new ChallengeController(llm, new ConsoleViewImpl(), gs, new ChallengeEvaluatorImpl());
+    }
+
+    static void testPrefetchIsSpeculative() {
+        RecordingLLMService llm = new RecordingLLMService();
+        Room next = room(2);
+        ChallengeController controller = newController(llm, room(1), next);
+
+        controller.prefetchChallenge(next, ChallengeType.RIDDLE);
+        controller.prefetchChallenge(next, ChallengeType.RIDDLE);
+        assertTest("Prefetch is asked once, as speculative work",
+                llm.priorities.equals(List.of(LLMPriority.SPECULATIVE)));
+        assertTest("Prefetched type is known before entering", controller.getPrefetchedType(next) == ChallengeType.RIDDLE);
+    }
+
+    static void testEnteringUsesAndPromotesPrefetch() {
+        RecordingLLMService llm = new RecordingLLMService();
+        llm.answerOnPromote = "Prefetched riddle";
+        Room next = room(2);
+        ChallengeController controller = newController(llm, room(1), next);
+
+        controller.prefetchChallenge(next, ChallengeType.RIDDLE);
+        controller.initiateChallenge(next, ChallengeType.RIDDLE);
+
+        assertTest("Waiting prefetch is raised to challenge priority",
+                llm.promoted.equals(List.of(LLMPriority.CHALLENGE)));
+        assertTest("Entering uses the prefetched challenge without a new call",
+                llm.priorities.size() == 1 && controller.getActiveChallenge() != null
+                        && "Prefetched riddle".equals(controller.getActiveChallenge().getPrompt()));
+        assertTest("A used prefetch is gone", controller.getPrefetchedType(next) == null);
+        controller.abortChallenge();
+    }
+
+    static void testOtherTypeIsAskedAfresh() {
+        RecordingLLMService llm = new RecordingLLMService();
+        Room next = room(2);
+        ChallengeController controller = newController(llm, room(1), next);
+
+        controller.prefetchChallenge(next, ChallengeType.RIDDLE);
+        llm.answer = "Fresh puzzle";
+        controller.initiateChallenge(next, ChallengeType.PUZZLE);
+
+        assertTest("Prefetch of another type is cancelled", llm.calls.getFirst().isCancelled());
+        assertTest("Challenge is asked for at challenge priority",
+                llm.priorities.equals(List.of(LLMPriority.SPECULATIVE, LLMPriority.CHALLENGE))
+                        && "Fresh puzzle".equals(controller.getActiveChallenge().getPrompt()));
+        controller.abortChallenge();
+    }
+
+    static void testEmptyPrefetchIsRetried() {
+        RecordingLLMService llm = new RecordingLLMService();
+        Room next = room(2);
+        ChallengeController controller = newController(llm, room(1), next);
+
+        controller.prefetchChallenge(next, ChallengeType.RIDDLE);
+        llm.calls.getFirst().complete(null);
+        llm.answer = "Second try";
+        controller.initiateChallenge(next, ChallengeType.RIDDLE);
+
+        assertTest("Empty prefetch gets a fresh attempt", llm.priorities.size() == 2
+                && "Second try".equals(controller.getActiveChallenge().getPrompt()));
+        controller.abortChallenge();
+    }
+
+    static void testDroppedRoomsAreCancelled() {
+        RecordingLLMService llm = new RecordingLLMService();
+        Room kept = room(2);
+        Room dropped = room(3);
+        ChallengeController controller = newController(llm, room(1), kept, dropped);
+
+        controller.prefetchChallenge(kept, ChallengeType.RIDDLE);
+        controller.prefetchChallenge(dropped, ChallengeType.PUZZLE);
+        controller.retainPrefetched(List.of(kept));
+
+        assertTest("Prefetch for a room no longer next door is cancelled",
+                llm.calls.get(1).isCancelled() && controller.getPrefetchedType(dropped) == null);
+        assertTest("Prefetch for a remaining neighbour is kept",
+                !llm.calls.get(0).isDone() && controller.getPrefetchedType(kept) == ChallengeType.RIDDLE);
+    }
+
+    // === Stub LLM whose challenge calls finish only when told to ===
+    static class RecordingLLMService implements LLMService {
+        final List<CompletableFuture<String>> calls = new ArrayList<>();
+        final List<LLMPriority> priorities = new ArrayList<>();
+        final List<LLMPriority> promoted = new ArrayList<>();
+        String answer;          // non-null: new calls finish with it straight away
+        String answerOnPromote; // non-null: a promoted call is granted and finishes with it
+
+        public CompletableFuture<String> generateChallengeAsync(String p, LLMPriority priority) {
+            CompletableFuture<String> call = new CompletableFuture<>();
+            calls.add(call);
+            priorities.add(priority);
+            if (answer != null) call.complete(answer);
+            return call;
+        }
+        public CompletableFuture<String> generateChallengeAsync(String p) {
+            return generateChallengeAsync(p, LLMPriority.CHALLENGE);
+        }
+        public boolean promote(CompletableFuture<String> call, LLMPriority priority) {
+            promoted.add(priority);
+            if (answerOnPromote != null) call.complete(answerOnPromote);
+            return true;
+        }
+        public String generateChallenge(ChallengeType t, ChallengeDifficulty d, String ctx) { return null; }
+        public String generateChallenge(String p) { return null; }
+        public String evaluateResponse(String r, String e, String c) { return null; }
+        public String generateHint(String p, String a, int l) { return null; }
+        public Map<String, String> parseJsonResponse(String j) {
+            Map<String, String> parsed = new HashMap<>();
+            parsed.put("prompt", j);
+            return parsed;
+        }
+        public String generateText(String s, String u) { return null; }
+        public boolean isAvailable() { return true; }
+    }
+
+    static void assertTest(String name, boolean condition) {
+        if (condition) {
+            System.out.println("  PASS: " + name);
+            passed++;
+        } else {
+            System.out.println("  FAIL: " + name);
+            failed++;
+        }
+    }
+}
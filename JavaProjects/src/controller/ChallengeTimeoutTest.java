@@ -0,0 +1,100 @@
+package controller;
+
+import model.*;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests for a challenge running out of time while its answer is still with the LLM.
+ *
+ * Run: java -cp bin controller.ChallengeTimeoutTest
+ */
+public class ChallengeTimeoutTest {
+
+    static int passed = 0;
+    static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Challenge Timeout Tests ===\n");
+
+        testTimeoutCancelsPendingEvaluation();
+        testLateTimerLeavesNextChallengeAlone();
+
+        System.out.println("\n=== Results: " + passed + " passed, " + failed + " failed ===");
+        if (failed > 0) System.exit(1);
+    }
+
+    static void testTimeoutCancelsPendingEvaluation() throws Exception {
+        StallingLLMService llm = new StallingLLMService();
+        llm.answer = "Riddle that is never judged";
+        Room room = ChallengePrefetchTest.room(1);
+        ChallengeController controller = ChallengePrefetchTest.newController(llm, room);
+        controller.initiateChallenge(room, ChallengeType.RIDDLE);
+        Challenge challenge = controller.getActiveChallenge();
+
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread player = Thread.ofVirtual().start(() -> {
+            try {
+                controller.submitResponse("a keyboard");
+            } catch (Throwable e) {
+                thrown.set(e);
+            }
+        });
+        CompletableFuture<String> evaluation = llm.evaluation.get(5, TimeUnit.SECONDS);
+        timeOut(controller, challenge); // what the timer thread does
+        boolean returned = player.join(Duration.ofSeconds(5));
+
+        assertTest("Pending evaluation is cancelled", evaluation.isCancelled());
+        assertTest("Waiting player returns without an exception", returned && thrown.get() == null);
+        assertTest("Challenge ends as timed out", controller.getActiveChallenge() == null
+                && challenge.getChallengeState() == ChallengeState.RESOLVED && !challenge.getWasSuccesful());
+    }
+
+    static void testLateTimerLeavesNextChallengeAlone() throws Exception {
+        StallingLLMService llm = new StallingLLMService();
+        llm.answer = "Riddle";
+        Room room = ChallengePrefetchTest.room(1);
+        ChallengeController controller = ChallengePrefetchTest.newController(llm, room);
+        controller.initiateChallenge(room, ChallengeType.RIDDLE);
+        Challenge first = controller.getActiveChallenge();
+        controller.abortChallenge();
+        controller.initiateChallenge(room, ChallengeType.RIDDLE);
+        Challenge second = controller.getActiveChallenge();
+
+        timeOut(controller, first);
+        assertTest("Timer of an ended challenge does not end the next one",
+                controller.getActiveChallenge() == second && second.getChallengeState() == ChallengeState.ACTIVE);
+        controller.abortChallenge();
+    }
+
+    static void timeOut(ChallengeController controller, Challenge challenge) throws Exception {
+        var method = ChallengeController.class.getDeclaredMethod("handleTimeout", Challenge.class);
+        method.setAccessible(true);
+        method.invoke(controller, challenge);
+    }
+
+    // === Stub LLM whose evaluations never come back ===
+    static class StallingLLMService extends ChallengePrefetchTest.RecordingLLMService {
+        final CompletableFuture<CompletableFuture<String>> evaluation = new CompletableFuture<>();
+
+        @Override
+        public CompletableFuture<String> evaluateResponseAsync(String r, String e, String c) {
+            CompletableFuture<String> call = new CompletableFuture<>();
+            evaluation.complete(call);
+            return call;
+        }
+    }
+
+    static void assertTest(String name, boolean condition) {
+        if (condition) {
+            System.out.println("  PASS: " + name);
+            passed++;
+        } else {
+            System.out.println("  FAIL: " + name);
+            failed++;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package controller;
+
+/**
+ * Tests for the LLM circuit breaker state machine.
+ * Uses a hand-driven clock so cool-downs pass instantly.
+ *
+ * Run: java -cp bin controller.CircuitBreakerTest
+ */
+public class CircuitBreakerTest {
+
+    static int passed = 0;
+    static int failed = 0;
+    static long now = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== Circuit Breaker Tests ===\n");
+
+        testTripsAfterConsecutiveFailures();
+        testSuccessResetsFailureCount();
+        testHalfOpenAllowsSingleTrial();
+        testFailedTrialReopens();
+        testReleaseFreesTrial();
+
+        System.out.println("\n=== Results: " + passed + " passed, " + failed + " failed ===");
+        if (failed > 0) System.exit(1);
+    }
+
+    static CircuitBreaker newBreaker() {
+        now = 0;
+        return new CircuitBreaker(3, 1000, () -> now);
+    }
+
+    static void testTripsAfterConsecutiveFailures() {
+        CircuitBreaker breaker = newBreaker();
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertTest("Stays closed below the threshold", breaker.getState() == CircuitBreaker.State.CLOSED);
+
+        breaker.recordFailure();
+        assertTest("Opens at the threshold", breaker.getState() == CircuitBreaker.State.OPEN);
+        assertTest("Open breaker fails fast", !breaker.tryAcquire());
+    }
+
+    static void testSuccessResetsFailureCount() {
+        CircuitBreaker breaker = newBreaker();
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertTest("Failures must be consecutive to trip", breaker.getState() == CircuitBreaker.State.CLOSED);
+    }
+
+    static void testHalfOpenAllowsSingleTrial() {
+        CircuitBreaker breaker = tripped();
+        now += 1000;
+        assertTest("Cool-down moves to half-open", breaker.getState() == CircuitBreaker.State.HALF_OPEN);
+        assertTest("First caller gets the trial", breaker.tryAcquire());
+        assertTest("Second caller is refused during the trial", !breaker.tryAcquire());
+
+        breaker.recordSuccess();
+        assertTest("Successful trial closes the breaker", breaker.getState() == CircuitBreaker.State.CLOSED);
+    }
+
+    static void testFailedTrialReopens() {
+        CircuitBreaker breaker = tripped();
+        now += 1000;
+        breaker.tryAcquire();
+        breaker.recordFailure();
+        assertTest("Failed trial reopens immediately", breaker.getState() == CircuitBreaker.State.OPEN);
+    }
+
+    static void testReleaseFreesTrial() {
+        CircuitBreaker breaker = tripped();
+        now += 1000;
+        breaker.tryAcquire();
+        breaker.release();
+        assertTest("Abandoned trial lets the next caller try", breaker.tryAcquire());
+    }
+
+    static CircuitBreaker tripped() {
+        CircuitBreaker breaker = newBreaker();
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure();
+        }
+        return breaker;
+    }
+
+    static void assertTest(String name, boolean condition) {
+        if (condition) {
+            System.out.println("  PASS: " + name);
+            passed++;
+        } else {
+            System.out.println("  FAIL: " + name);
+            failed++;
+        }
+    }
+}
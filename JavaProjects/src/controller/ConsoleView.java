@@ -47,6 +47,7 @@ public interface ConsoleView {
 
     // === Game State ===
     void displayStats(Player player, GameState state);
+    void displayLLMStatus(DegradationTier tier);
     void displayGameOver(GameState state, boolean victory);
     void displayWelcome(GameDifficulty difficulty);
     void displayWelcome();
@@ -0,0 +1,202 @@
+package controller;
+
+import model.ChallengeDifficulty;
+import model.ItemType;
+import model.MonsterDifficulty;
+import model.RoomType;
+import model.monsterType;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Pre-generated world content and riddles, built offline by LibraryBuilder and read
+ * memory-mapped, so a world built from it makes no LLM calls.
+ *
+ * Layout: [magic][end offset] then records of [key length][value length][key][value]. The key
+ * is theme + category ("monster:HARD:UNDEAD", "weapon:2"); the value is name + description, or
+ * a challenge's JSON for riddles. The end offset only moves past a record once it is fully
+ * written, so an interrupted build leaves a valid library that the next run adds to.
+ */
+public class ContentLibrary {
+    private static final int MAGIC = 0x4A52504C; // "JRPL"
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final char SEPARATOR = '\u0001';
+
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final Map<String, Map<String, List<Integer>>> index = new HashMap<>(); // theme -> category -> offsets
+    private final Set<String> records = new HashSet<>(); // writer only: keeps repeated answers out
+    private int end;
+    private int entries;
+
+    private ContentLibrary(MappedByteBuffer buffer, int capacity) {
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    public static ContentLibrary open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int size = (int) Math.min(channel.size(), Integer.MAX_VALUE);
+            ContentLibrary library = new ContentLibrary(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), size);
+            if (size < HEADER_SIZE || library.buffer.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a content library");
+            }
+            library.loadIndex();
+            return library;
+        }
+    }
+
+    // Creates the file, or reopens it to add more
+    public static ContentLibrary openForWriting(Path file, int maxBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            int capacity = (int) Math.max(Math.max(maxBytes, HEADER_SIZE + 1024), Math.min(channel.size(), Integer.MAX_VALUE));
+            // The mapping stays valid after the channel is closed
+            ContentLibrary library = new ContentLibrary(channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity), capacity);
+            if (library.buffer.getInt(0) == MAGIC) {
+                library.loadIndex();
+            } else {
+                library.buffer.putInt(0, MAGIC);
+                library.setEnd(HEADER_SIZE);
+            }
+            return library;
+        }
+    }
+
+    public static String roomCategory(RoomType type) {
+        return "room:" + type;
+    }
+
+    public static String monsterCategory(MonsterDifficulty difficulty, monsterType type) {
+        return "monster:" + difficulty + ":" + type;
+    }
+
+    public static String itemCategory(ItemType type, int tier) {
+        return type.toString().toLowerCase() + ":" + tier;
+    }
+
+    public static String riddleCategory(ChallengeDifficulty difficulty) {
+        return "riddle:" + difficulty;
+    }
+
+    private void loadIndex() {
+        int limit = Math.min(buffer.getInt(4), capacity);
+        int offset = HEADER_SIZE;
+        while (offset + RECORD_HEADER_SIZE <= limit) {
+            int keyLength = buffer.getInt(offset);
+            int valueLength = buffer.getInt(offset + 4);
+            int size = RECORD_HEADER_SIZE + keyLength + valueLength;
+            if (keyLength < 0 || valueLength < 0 || offset + size > limit) break; // torn write
+            String key = readString(offset + RECORD_HEADER_SIZE, keyLength);
+            addToIndex(key, offset);
+            if (!buffer.isReadOnly()) {
+                records.add(key + SEPARATOR + readString(offset + RECORD_HEADER_SIZE + keyLength, valueLength));
+            }
+            offset += size;
+        }
+        end = offset;
+    }
+
+    private void addToIndex(String key, int offset) {
+        int split = key.indexOf(SEPARATOR);
+        index.computeIfAbsent(key.substring(0, split), theme -> new HashMap<>())
+                .computeIfAbsent(key.substring(split + 1), category -> new ArrayList<>())
+                .add(offset);
+        entries++;
+    }
+
+    // False if the entry is already there or the library is full
+    public synchronized boolean add(String theme, String category, String value) {
+        String key = theme + SEPARATOR + category;
+        if (records.contains(key + SEPARATOR + value)) {
+            return false;
+        }
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        int size = RECORD_HEADER_SIZE + keyBytes.length + valueBytes.length;
+        if (end + size > capacity) {
+            return false;
+        }
+        buffer.putInt(end, keyBytes.length);
+        buffer.putInt(end + 4, valueBytes.length);
+        buffer.put(end + RECORD_HEADER_SIZE, keyBytes);
+        buffer.put(end + RECORD_HEADER_SIZE + keyBytes.length, valueBytes);
+        records.add(key + SEPARATOR + value);
+        addToIndex(key, end);
+        setEnd(end + size);
+        return true;
+    }
+
+    public boolean addContent(String theme, String category, String[] content) {
+        return add(theme, category, content[0] + SEPARATOR + content[1]);
+    }
+
+    // A random entry, or null if there is none; a null theme means any theme
+    public synchronized String sample(String theme, String category, Random random) {
+        List<Integer> offsets = theme != null ? index.getOrDefault(theme, Map.of()).getOrDefault(category, List.of()) : null;
+        if (offsets == null) {
+            offsets = new ArrayList<>();
+            for (Map<String, List<Integer>> themed : index.values()) {
+                offsets.addAll(themed.getOrDefault(category, List.of()));
+            }
+        }
+        if (offsets.isEmpty()) {
+            return null;
+        }
+        int offset = offsets.get(random.nextInt(offsets.size()));
+        int keyLength = buffer.getInt(offset);
+        return readString(offset + RECORD_HEADER_SIZE + keyLength, buffer.getInt(offset + 4));
+    }
+
+    // {name, description}, or null if there is none
+    public String[] sampleContent(String theme, String category, Random random) {
+        String value = sample(theme, category, random);
+        return value != null ? value.split(String.valueOf(SEPARATOR), 2) : null;
+    }
+
+    public synchronized int count(String theme, String category) {
+        return index.getOrDefault(theme, Map.of()).getOrDefault(category, List.of()).size();
+    }
+
+    public synchronized List<String> getThemes() {
+        return new ArrayList<>(index.keySet());
+    }
+
+    public synchronized int size() {
+        return entries;
+    }
+
+    public synchronized int getUsedBytes() {
+        return end;
+    }
+
+    public void flush() {
+        if (!buffer.isReadOnly()) {
+            buffer.force();
+        }
+    }
+
+    private void setEnd(int offset) {
+        end = offset;
+        buffer.putInt(4, offset);
+    }
+
+    private String readString(int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,189 @@
+package controller;
+
+import model.ChallengeDifficulty;
+import model.ChallengeType;
+import model.ItemType;
+import model.MonsterDifficulty;
+import model.RoomType;
+import model.monsterType;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for the pre-generated content library and the batch tool that fills it.
+ *
+ * Run: java -cp bin controller.ContentLibraryTest
+ */
+public class ContentLibraryTest {
+
+    static int passed = 0;
+    static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Content Library Tests ===\n");
+
+        testEntriesAreSampledByThemeAndCategory();
+        testRepeatsAreRejected();
+        testReopenedLibraryKeepsEntries();
+        testTornRecordIsIgnored();
+        testNotALibrary();
+        testBuilderFillsEveryCategory();
+        testBuilderResumes();
+
+        System.out.println("\n=== Results: " + passed + " passed, " + failed + " failed ===");
+        if (failed > 0) System.exit(1);
+    }
+
+    static void testEntriesAreSampledByThemeAndCategory() throws Exception {
+        ContentLibrary library = ContentLibrary.openForWriting(newFile(), 64 * 1024);
+        String hard = ContentLibrary.monsterCategory(MonsterDifficulty.HARD, monsterType.UNDEAD);
+        library.addContent("Dark Forest", hard, new String[]{"Bog Wight", "A drowned knight."});
+        library.addContent("Ancient Ruins", hard, new String[]{"Dust Lich", "A crumbling sorcerer."});
+
+        String[] sampled = library.sampleContent("Dark Forest", hard, new Random());
+        assertTest("Sample comes from the asked theme", "Bog Wight".equals(sampled[0]) && "A drowned knight.".equals(sampled[1]));
+        assertTest("Missing category gives null",
+                library.sampleContent("Dark Forest", ContentLibrary.itemCategory(ItemType.WEAPON, 3), new Random()) == null);
+        assertTest("No theme samples across themes", library.sample(null, hard, new Random()) != null
+                && library.sampleContent("Haunted Catacombs", hard, new Random()) == null);
+    }
+
+    static void testRepeatsAreRejected() throws Exception {
+        ContentLibrary library = ContentLibrary.openForWriting(newFile(), 64 * 1024);
+        String room = ContentLibrary.roomCategory(RoomType.SAFE);
+        boolean first = library.addContent("Dark Forest", room, new String[]{"Glade", "Quiet."});
+        boolean again = library.addContent("Dark Forest", room, new String[]{"Glade", "Quiet."});
+        assertTest("The same entry is stored once", first && !again && library.count("Dark Forest", room) == 1);
+
+        ContentLibrary tiny = ContentLibrary.openForWriting(newFile(), 0);
+        boolean fits = true;
+        for (int i = 0; i < 200 && fits; i++) {
+            fits = tiny.add("t", "c", "value " + i);
+        }
+        assertTest("A full library refuses more", !fits && tiny.getUsedBytes() <= 8 + 1024);
+    }
+
+    static void testReopenedLibraryKeepsEntries() throws Exception {
+        Path file = newFile();
+        ContentLibrary writer = ContentLibrary.openForWriting(file, 64 * 1024);
+        String riddle = ContentLibrary.riddleCategory(ChallengeDifficulty.EASY);
+        writer.add("Dark Forest", riddle, "{\"prompt\": \"What has roots?\"}");
+        writer.flush();
+
+        ContentLibrary reader = ContentLibrary.open(file);
+        assertTest("Reader sees what was written", reader.count("Dark Forest", riddle) == 1
+                && reader.getThemes().equals(List.of("Dark Forest")));
+
+        ContentLibrary resumed = ContentLibrary.openForWriting(file, 64 * 1024);
+        resumed.add("Dark Forest", riddle, "{\"prompt\": \"What has keys?\"}");
+        assertTest("Reopened writer appends after existing entries", resumed.count("Dark Forest", riddle) == 2
+                && !resumed.add("Dark Forest", riddle, "{\"prompt\": \"What has roots?\"}"));
+    }
+
+    static void testTornRecordIsIgnored() throws Exception {
+        Path file = newFile();
+        ContentLibrary writer = ContentLibrary.openForWriting(file, 64 * 1024);
+        writer.add("t", "c", "kept");
+        int end = writer.getUsedBytes();
+        writer.flush();
+        // Claim a record whose bytes never arrived
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, end + 64), 4);
+            channel.write(ByteBuffer.allocate(8).putInt(0, 5).putInt(4, 1000), end);
+        }
+        ContentLibrary reader = ContentLibrary.open(file);
+        assertTest("Half-written record is skipped", reader.size() == 1 && "kept".equals(reader.sample("t", "c", new Random())));
+    }
+
+    static void testNotALibrary() throws Exception {
+        Path file = newFile();
+        Files.writeString(file, "not a library at all");
+        boolean rejected = false;
+        try {
+            ContentLibrary.open(file);
+        } catch (IOException e) {
+            rejected = true;
+        }
+        assertTest("Other files are rejected", rejected);
+    }
+
+    static void testBuilderFillsEveryCategory() throws Exception {
+        ContentLibrary library = ContentLibrary.openForWriting(newFile(), 1024 * 1024);
+        NumberingLLMService llm = new NumberingLLMService();
+        int added = new LibraryBuilder(llm, library, 4).build(List.of("Dark Forest", "Ancient Ruins"), 2);
+
+        boolean full = library.count("Ancient Ruins", ContentLibrary.roomCategory(RoomType.BOSS)) == 2
+                && library.count("Dark Forest", ContentLibrary.monsterCategory(MonsterDifficulty.EASY, monsterType.BEAST)) == 2
+                && library.count("Dark Forest", ContentLibrary.itemCategory(ItemType.KEY, MapBuilder.tierOf(0.5f))) == 2
+                && library.count("Dark Forest", ContentLibrary.riddleCategory(ChallengeDifficulty.ULTRA)) == 2;
+        assertTest("Every theme and category is filled (" + added + " entries)", full && added == library.size());
+        assertTest("Batches carry several entries", llm.batches.get() < llm.specs.get());
+    }
+
+    static void testBuilderResumes() throws Exception {
+        Path file = newFile();
+        ContentLibrary partial = ContentLibrary.openForWriting(file, 1024 * 1024);
+        new LibraryBuilder(new NumberingLLMService(), partial, 4).build(List.of("Dark Forest"), 1);
+        partial.flush();
+        int before = partial.size();
+
+        NumberingLLMService llm = new NumberingLLMService();
+        ContentLibrary resumed = ContentLibrary.openForWriting(file, 1024 * 1024);
+        int added = new LibraryBuilder(llm, resumed, 4).build(List.of("Dark Forest"), 2);
+        assertTest("A second run only asks for what is missing", added == before && llm.specs.get() + llm.riddles.get() == before);
+
+        int again = new LibraryBuilder(llm, resumed, 4).build(List.of("Dark Forest"), 2);
+        assertTest("A complete library asks for nothing", again == 0);
+    }
+
+    static Path newFile() throws IOException {
+        Path file = Files.createTempFile("content-library", ".bin");
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    // === Stub LLM whose every answer is new ===
+    static class NumberingLLMService extends MapBuilderTest.FailingLLMService {
+        static final AtomicInteger next = new AtomicInteger(); // shared, so a second run never repeats the first
+        final AtomicInteger batches = new AtomicInteger();
+        final AtomicInteger specs = new AtomicInteger();
+        final AtomicInteger riddles = new AtomicInteger();
+
+        @Override
+        public List<String[]> generateContentBatch(List<ContentSpec> specs) {
+            batches.incrementAndGet();
+            this.specs.addAndGet(specs.size());
+            List<String[]> results = new ArrayList<>();
+            for (ContentSpec spec : specs) {
+                int n = next.incrementAndGet();
+                results.add(new String[]{spec.kind() + " " + n, "Description " + n + "."});
+            }
+            return results;
+        }
+
+        @Override
+        public String generateChallenge(ChallengeType t, ChallengeDifficulty d, String ctx) {
+            riddles.incrementAndGet();
+            return "{\"prompt\": \"Riddle " + next.incrementAndGet() + "\", \"expectedAnswerPattern\": \"echo\"}";
+        }
+    }
+
+    static void assertTest(String name, boolean condition) {
+        if (condition) {
+            System.out.println("  PASS: " + name);
+            passed++;
+        } else {
+            System.out.println("  FAIL: " + name);
+            failed++;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package controller;
+
+// One entity to name. Specs sharing a group (the id of the room they are in) are named together,
+// so a room, its monster and its loot come out as one scene; -1 means no group
+public record ContentSpec(String kind, String prompt, int group) {
+    public ContentSpec(String kind, String prompt) {
+        this(kind, prompt, -1);
+    }
+}
@@ -0,0 +1,87 @@
+package controller;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Chooses a DegradationTier from how LLM calls are doing against their latency targets.
+ * Each call type keeps a rolling p95 of completion time (queueing included, failures counted
+ * as misses) and the number of its calls waiting for a slot; the worst type sets the tier.
+ * Past its target is REDUCED, past twice its target is MINIMAL. The tier rises at once but
+ * falls one step at a time, and only after a spell of calm, so it doesn't flap.
+ */
+public class DegradationPolicy {
+    private static final int WINDOW = 32;
+    private static final int MIN_SAMPLES = 4;
+    private static final long MAX_AGE_MILLIS = 120_000; // older samples say nothing about now
+    private static final long RECOVERY_MILLIS = 15_000;
+
+    private final Map<LLMCallType, LatencyWindow> latencies = new EnumMap<>(LLMCallType.class);
+    private final Map<LLMCallType, AtomicInteger> queued = new EnumMap<>(LLMCallType.class);
+    private final LongSupplier clock;
+
+    private DegradationTier tier = DegradationTier.FULL;
+    private long calmSince;
+
+    public DegradationPolicy() {
+        this(System::currentTimeMillis);
+    }
+
+    public DegradationPolicy(LongSupplier clock) {
+        this.clock = clock;
+        for (LLMCallType type : LLMCallType.values()) {
+            latencies.put(type, new LatencyWindow(WINDOW, clock));
+            queued.put(type, new AtomicInteger());
+        }
+    }
+
+    public void record(LLMCallType type, long latencyMillis, boolean success) {
+        // A failed call missed its target however quickly it failed
+        latencies.get(type).record(success ? latencyMillis : Math.max(latencyMillis, type.getSloMillis() + 1));
+    }
+
+    public void enqueued(LLMCallType type) {
+        queued.get(type).incrementAndGet();
+    }
+
+    public void dequeued(LLMCallType type) {
+        queued.get(type).decrementAndGet();
+    }
+
+    public int getQueueDepth(LLMCallType type) {
+        return queued.get(type).get();
+    }
+
+    // Recent p95 for the type, or -1 while it has too few recent calls to judge
+    public long p95Millis(LLMCallType type) {
+        return latencies.get(type).p95Millis(MIN_SAMPLES, MAX_AGE_MILLIS);
+    }
+
+    // With no endpoint to talk to the game might as well play offline until one comes back
+    public synchronized DegradationTier evaluate(boolean available) {
+        DegradationTier target = available ? measure() : DegradationTier.MINIMAL;
+        long now = clock.getAsLong();
+        if (target.compareTo(tier) >= 0) {
+            tier = target;
+            calmSince = now;
+        } else if (now - calmSince >= RECOVERY_MILLIS) {
+            tier = DegradationTier.values()[tier.ordinal() - 1];
+            calmSince = now;
+        }
+        return tier;
+    }
+
+    private DegradationTier measure() {
+        double worst = 0;
+        for (LLMCallType type : LLMCallType.values()) {
+            long p95 = p95Millis(type);
+            if (p95 >= 0) {
+                worst = Math.max(worst, (double) p95 / type.getSloMillis());
+            }
+            worst = Math.max(worst, (double) getQueueDepth(type) / type.getQueueLimit());
+        }
+        return worst > 2 ? DegradationTier.MINIMAL : worst > 1 ? DegradationTier.REDUCED : DegradationTier.FULL;
+    }
+}
@@ -0,0 +1,124 @@
+package controller;
+
+/**
+ * Tests for picking the LLM degradation tier from latency and queue depth.
+ * Uses a hand-driven clock so recovery spells and sample ageing pass instantly.
+ *
+ * Run: java -cp bin controller.DegradationPolicyTest
+ */
+public class DegradationPolicyTest {
+
+    static int passed = 0;
+    static int failed = 0;
+    static long now = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== Degradation Policy Tests ===\n");
+
+        testFullWhenFast();
+        testSlowCallsDegrade();
+        testFailuresCountAsMisses();
+        testQueueDepthDegrades();
+        testRecoveryIsGradual();
+        testStaleSamplesExpire();
+        testUnavailableIsMinimal();
+
+        System.out.println("\n=== Results: " + passed + " passed, " + failed + " failed ===");
+        if (failed > 0) System.exit(1);
+    }
+
+    static DegradationPolicy newPolicy() {
+        now = 1_000_000;
+        return new DegradationPolicy(() -> now);
+    }
+
+    static void recordMany(DegradationPolicy policy, LLMCallType type, long latencyMillis, int count) {
+        for (int i = 0; i < count; i++) {
+            policy.record(type, latencyMillis, true);
+        }
+    }
+
+    static void testFullWhenFast() {
+        DegradationPolicy policy = newPolicy();
+        assertTest("No history means full service", policy.evaluate(true) == DegradationTier.FULL);
+        recordMany(policy, LLMCallType.EVALUATION, 2_000, 10);
+        assertTest("Calls inside their target keep full service", policy.evaluate(true) == DegradationTier.FULL);
+    }
+
+    static void testSlowCallsDegrade() {
+        DegradationPolicy policy = newPolicy();
+        recordMany(policy, LLMCallType.HINT, 10_000, 10);
+        assertTest("p95 over target reduces", policy.evaluate(true) == DegradationTier.REDUCED);
+        recordMany(policy, LLMCallType.CHALLENGE, 40_000, 10);
+        assertTest("p95 over twice the target goes minimal", policy.evaluate(true) == DegradationTier.MINIMAL);
+    }
+
+    static void testFailuresCountAsMisses() {
+        DegradationPolicy policy = newPolicy();
+        for (int i = 0; i < 10; i++) {
+            policy.record(LLMCallType.EVALUATION, 50, false);
+        }
+        assertTest("Quick failures still miss the target", policy.evaluate(true) == DegradationTier.REDUCED);
+    }
+
+    static void testQueueDepthDegrades() {
+        DegradationPolicy policy = newPolicy();
+        for (int i = 0; i < 3; i++) {
+            policy.enqueued(LLMCallType.EVALUATION);
+        }
+        assertTest("Backed-up interactive calls reduce", policy.evaluate(true) == DegradationTier.REDUCED);
+        for (int i = 0; i < 3; i++) {
+            policy.enqueued(LLMCallType.CONTENT);
+        }
+        assertTest("A content burst alone is expected load", policy.getQueueDepth(LLMCallType.CONTENT) == 3
+                && policy.evaluate(true) == DegradationTier.REDUCED);
+        for (int i = 0; i < 3; i++) {
+            policy.dequeued(LLMCallType.EVALUATION);
+        }
+        assertTest("Draining the queue does not recover at once", policy.evaluate(true) == DegradationTier.REDUCED);
+    }
+
+    static void testRecoveryIsGradual() {
+        DegradationPolicy policy = newPolicy();
+        for (int i = 0; i < 10; i++) {
+            policy.enqueued(LLMCallType.HINT);
+        }
+        policy.evaluate(true);
+        for (int i = 0; i < 10; i++) {
+            policy.dequeued(LLMCallType.HINT);
+        }
+        now += 5_000;
+        assertTest("Stays minimal during the calm spell", policy.evaluate(true) == DegradationTier.MINIMAL);
+        now += 15_000;
+        assertTest("Steps down one tier after the spell", policy.evaluate(true) == DegradationTier.REDUCED);
+        assertTest("Next step needs another spell", policy.evaluate(true) == DegradationTier.REDUCED);
+        now += 15_000;
+        assertTest("Back to full after a second spell", policy.evaluate(true) == DegradationTier.FULL);
+    }
+
+    static void testStaleSamplesExpire() {
+        DegradationPolicy policy = newPolicy();
+        recordMany(policy, LLMCallType.NARRATION, 30_000, 10);
+        assertTest("Slow narration goes minimal", policy.evaluate(true) == DegradationTier.MINIMAL);
+        now += 10 * 60_000;
+        assertTest("Old samples are forgotten", policy.p95Millis(LLMCallType.NARRATION) == -1);
+        policy.evaluate(true);
+        now += 15_000;
+        assertTest("Recovers without new calls", policy.evaluate(true) == DegradationTier.FULL);
+    }
+
+    static void testUnavailableIsMinimal() {
+        DegradationPolicy policy = newPolicy();
+        assertTest("No reachable endpoint goes minimal", policy.evaluate(false) == DegradationTier.MINIMAL);
+    }
+
+    static void assertTest(String name, boolean condition) {
+        if (condition) {
+            System.out.println("  PASS: " + name);
+            passed++;
+        } else {
+            System.out.println("  FAIL: " + name);
+            failed++;
+        }
+    }
+}
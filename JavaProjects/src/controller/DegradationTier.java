@@ -0,0 +1,18 @@
+package controller;
+
+// How much of the game leans on the LLM right now, from everything on to offline-style play
+public enum DegradationTier {
+    FULL("all LLM features on"),
+    REDUCED("challenge prefetch paused, hints from the challenge itself"),
+    MINIMAL("exploration challenges skipped, new content from templates");
+
+    private final String description;
+
+    DegradationTier(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
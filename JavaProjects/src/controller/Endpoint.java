@@ -0,0 +1,100 @@
+package controller;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One llama-server process in an EndpointPool: where it lives, how many requests it is
+ * serving right now, its recent latencies, and a circuit breaker that ejects it from
+ * routing while it keeps failing.
+ */
+public class Endpoint {
+    private static final int LATENCY_WINDOW = 64;
+    private static final int MIN_LATENCY_SAMPLES = 16;
+
+    private final URI uri;
+    private final URI modelsUri;
+    private final CircuitBreaker breaker;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicBoolean probing = new AtomicBoolean();
+    private final SlotAffinity slots;
+
+    private final LatencyWindow latencies = new LatencyWindow(LATENCY_WINDOW);
+
+    // slots should match the server's --parallel; 0 leaves slot choice to the server
+    public Endpoint(String url, CircuitBreaker breaker, int slots) {
+        this.uri = URI.create(url);
+        this.modelsUri = URI.create(url.replace("/chat/completions", "/models"));
+        this.breaker = breaker;
+        this.slots = new SlotAffinity(slots);
+    }
+
+    // Claims a request slot unless the endpoint is ejected; pair with end() or abandon()
+    public boolean tryAcquire() {
+        if (!breaker.tryAcquire()) {
+            return false;
+        }
+        inFlight.incrementAndGet();
+        return true;
+    }
+
+    public void end(boolean success, long latencyMillis) {
+        inFlight.decrementAndGet();
+        if (success) {
+            latencies.record(latencyMillis);
+            breaker.recordSuccess();
+        } else {
+            breaker.recordFailure();
+        }
+    }
+
+    // The caller gave up before an answer came back, which says nothing about the server
+    public void abandon() {
+        inFlight.decrementAndGet();
+        breaker.release();
+    }
+
+    // p95 of recent successful calls, or -1 until there are enough of them to mean anything
+    public long p95Millis() {
+        return latencies.p95Millis(MIN_LATENCY_SAMPLES);
+    }
+
+    // Server slot that most likely still has this prefix cached, or -1; pair with releaseSlot()
+    public int claimSlot(String prefix) {
+        return slots.claim(prefix);
+    }
+
+    public void releaseSlot(int slot) {
+        slots.release(slot);
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public boolean isEjected() {
+        return breaker.getState() == CircuitBreaker.State.OPEN;
+    }
+
+    public CircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    public URI getModelsUri() {
+        return modelsUri;
+    }
+
+    AtomicBoolean probing() {
+        return probing;
+    }
+
+    @Override
+    public String toString() {
+        return uri.toString();
+    }
+}
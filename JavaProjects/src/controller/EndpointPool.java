@@ -0,0 +1,92 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Routes LLM requests across one or more llama-server processes.
+ * Each request goes to the endpoint with the fewest requests outstanding; endpoints whose
+ * breaker has tripped are skipped until they recover.
+ */
+public class EndpointPool {
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final AtomicInteger rotation = new AtomicInteger(); // breaks ties so idle endpoints share load
+
+    public EndpointPool(List<String> urls, int failureThreshold, long ejectMillis, int slotsPerEndpoint) {
+        this(urls, failureThreshold, ejectMillis, slotsPerEndpoint, System::currentTimeMillis);
+    }
+
+    public EndpointPool(List<String> urls, int failureThreshold, long ejectMillis, int slotsPerEndpoint, LongSupplier clock) {
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("At least one LLM endpoint is required");
+        }
+        for (String url : urls) {
+            endpoints.add(new Endpoint(url, new CircuitBreaker(failureThreshold, ejectMillis, clock), slotsPerEndpoint));
+        }
+    }
+
+    // Over endpoints that may belong to other pools too; load, breakers and slots are then seen by all of them
+    public EndpointPool(List<Endpoint> shared) {
+        if (shared.isEmpty()) {
+            throw new IllegalArgumentException("At least one LLM endpoint is required");
+        }
+        endpoints.addAll(shared);
+    }
+
+    // Comma-separated endpoints; a bare host:port gets the chat completions path appended
+    public static List<String> parse(String spec) {
+        List<String> urls = new ArrayList<>();
+        for (String entry : spec.split(",")) {
+            String url = entry.trim();
+            if (url.isEmpty()) continue;
+            if (!url.contains("://")) {
+                url = "http://" + url;
+            }
+            if (!url.contains("/v1/")) {
+                url = url.replaceAll("/+$", "") + "/v1/chat/completions";
+            }
+            urls.add(url);
+        }
+        return urls;
+    }
+
+    // Least outstanding requests first, never the excluded endpoint; null if none will take the request
+    public Endpoint acquire(Endpoint exclude) {
+        List<Endpoint> candidates = new ArrayList<>(endpoints.size());
+        int offset = Math.floorMod(rotation.getAndIncrement(), endpoints.size());
+        for (int i = 0; i < endpoints.size(); i++) {
+            Endpoint endpoint = endpoints.get((offset + i) % endpoints.size());
+            if (endpoint != exclude) {
+                candidates.add(endpoint);
+            }
+        }
+        candidates.sort(Comparator.comparingInt(Endpoint::getInFlight)); // stable, keeps the rotation for ties
+
+        for (Endpoint endpoint : candidates) {
+            if (endpoint.tryAcquire()) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+
+    public boolean isAvailable() {
+        for (Endpoint endpoint : endpoints) {
+            if (!endpoint.isEjected()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return endpoints.size();
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return List.copyOf(endpoints);
+    }
+}
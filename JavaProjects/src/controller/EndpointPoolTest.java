@@ -0,0 +1,270 @@
+package controller;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Tests for routing LLM calls across several servers: least-outstanding choice, ejection and
+ * re-admission, retries on another server, hedged requests and timed-out calls. The pool tests use a
+ * hand-driven clock; retries and hedging run against two stub servers on localhost.
+ *
+ * Run: java -cp bin controller.EndpointPoolTest
+ */
+public class EndpointPoolTest {
+
+    static int passed = 0;
+    static int failed = 0;
+    static long now = 0;
+
+    static final List<String> URLS = List.of("http://a:8080/v1/chat/completions",
+            "http://b:8080/v1/chat/completions", "http://c:8080/v1/chat/completions");
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Endpoint Pool Tests ===\n");
+
+        testLeastOutstandingFirst();
+        testExcludedEndpointIsSkipped();
+        testEjectedAfterFailuresThenReadmitted();
+        testAllEjectedIsUnavailable();
+        testRetryGoesToAnotherServer();
+        testHedgeCancelsTheLoser();
+        testTimedOutCallLetsGo();
+
+        System.out.println("\n=== Results: " + passed + " passed, " + failed + " failed ===");
+        System.exit(failed > 0 ? 1 : 0); // the stub servers' threads would keep the JVM alive
+    }
+
+    static EndpointPool newPool(List<String> urls) {
+        now = 0;
+        return new EndpointPool(urls, 3, 1000, 0, () -> now);
+    }
+
+    static void testLeastOutstandingFirst() {
+        EndpointPool pool = newPool(URLS);
+        Endpoint first = pool.acquire(null);
+        Endpoint second = pool.acquire(null);
+        Endpoint third = pool.acquire(null);
+        assertTest("Load spreads over every server", first != second && second != third && first != third);
+
+        second.end(true, 10);
+        boolean leastLoaded = pool.acquire(null) == second;
+        leastLoaded &= pool.acquire(null).getInFlight() == 2; // all even again, so any of them
+        first.end(true, 10);
+        leastLoaded &= pool.acquire(null) == first;
+        assertTest("Next call goes to the server with fewest outstanding", leastLoaded);
+    }
+
+    static void testExcludedEndpointIsSkipped() {
+        EndpointPool pool = newPool(URLS.subList(0, 2));
+        Endpoint failedOne = pool.getEndpoints().getFirst();
+        boolean skipped = true;
+        for (int i = 0; i < 10; i++) {
+            Endpoint next = pool.acquire(failedOne);
+            skipped &= next != failedOne;
+            next.end(true, 10);
+        }
+        assertTest("A retry never goes back to the excluded server", skipped);
+    }
+
+    static void testEjectedAfterFailuresThenReadmitted() {
+        EndpointPool pool = newPool(URLS.subList(0, 2));
+        Endpoint bad = pool.getEndpoints().get(0);
+        Endpoint good = pool.getEndpoints().get(1);
+        for (int i = 0; i < 3; i++) {
+            bad.tryAcquire();
+            bad.end(false, 10);
+        }
+        assertTest("Server is ejected after repeated failures", bad.isEjected() && pool.isAvailable());
+
+        boolean avoided = true;
+        for (int i = 0; i < 10; i++) {
+            Endpoint next = pool.acquire(null);
+            avoided &= next == good;
+            next.end(true, 10);
+        }
+        assertTest("Ejected server gets no calls", avoided);
+
+        now += 1000;
+        Endpoint held = pool.acquire(null); // keep the good one busy so the trial goes to the other
+        Endpoint trial = held == good ? pool.acquire(null) : held;
+        assertTest("After the cool-down it gets one trial call", trial == bad && !bad.tryAcquire());
+        trial.end(true, 10);
+        assertTest("A good trial puts it back in rotation", !bad.isEjected()
+                && bad.getBreaker().getState() == CircuitBreaker.State.CLOSED);
+    }
+
+    static void testAllEjectedIsUnavailable() {
+        EndpointPool pool = newPool(URLS.subList(0, 1));
+        Endpoint only = pool.getEndpoints().getFirst();
+        for (int i = 0; i < 3; i++) {
+            only.tryAcquire();
+            only.end(false, 10);
+        }
+        assertTest("With every server ejected nothing is handed out", pool.acquire(null) == null && !pool.isAvailable());
+    }
+
+    static void testRetryGoesToAnotherServer() throws Exception {
+        AtomicInteger arrivals = new AtomicInteger();
+        StubServer a = new StubServer("A", exchange -> arrivals.getAndIncrement() == 0);
+        StubServer b = new StubServer("B", exchange -> arrivals.getAndIncrement() == 0);
+        try {
+            LLMServiceImpl llm = new LLMServiceImpl(List.of(a.url(), b.url()), "m", 10, 3, false, Map.of());
+            String reply = llm.generateText("sys", "retry me");
+            boolean otherServer = ("from A".equals(reply) && b.requests.get() == 1 && a.requests.get() == 1)
+                    || ("from B".equals(reply) && a.requests.get() == 1 && b.requests.get() == 1);
+            assertTest("Failed call is retried on the other server (" + reply + ")", otherServer);
+        } finally {
+            a.stop();
+            b.stop();
+        }
+    }
+
+    static void testHedgeCancelsTheLoser() throws Exception {
+        AtomicBoolean slowNext = new AtomicBoolean();
+        CountDownLatch loserClosed = new CountDownLatch(1);
+        StubServer a = new StubServer("A", slowNext, loserClosed);
+        StubServer b = new StubServer("B", slowNext, loserClosed);
+        try {
+            LLMServiceImpl llm = new LLMServiceImpl(List.of(a.url(), b.url()), "m", 10, 1, true, Map.of());
+            for (int i = 0; i < 40; i++) {
+                llm.generateText("sys", "warm up " + i); // enough history on both for a p95
+            }
+
+            slowNext.set(true); // whichever server gets the call first stalls
+            long start = System.nanoTime();
+            String reply = llm.generateText("sys", "hedge me");
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTest("Hedge answers while the first server stalls (" + elapsed + " ms)",
+                    reply != null && reply.startsWith("from ") && elapsed < StubServer.STALL_MILLIS);
+            assertTest("Losing request's connection is closed",
+                    loserClosed.await(StubServer.STALL_MILLIS, TimeUnit.MILLISECONDS));
+        } finally {
+            a.stop();
+            b.stop();
+        }
+    }
+
+    static void testTimedOutCallLetsGo() throws Exception {
+        CountDownLatch closed = new CountDownLatch(1);
+        StubServer stalled = new StubServer("A", closed);
+        try {
+            LLMServiceImpl llm;
+            System.setProperty("javarpg.llm.slots", "1");
+            try {
+                llm = new LLMServiceImpl(List.of(stalled.url()), "m", 1, 3, false, Map.of());
+            } finally {
+                System.clearProperty("javarpg.llm.slots");
+            }
+            LLMRoute route = llm.getRoutes().getFirst();
+            Endpoint endpoint = route.getPool().getEndpoints().getFirst();
+
+            String reply = llm.generateText("sys", "stall me");
+            assertTest("Stalled call gives up at its timeout", reply == null);
+            assertTest("Timed-out call's connection is closed",
+                    closed.await(StubServer.STALL_MILLIS / 2, TimeUnit.MILLISECONDS) && stalled.requests.get() == 1);
+            assertTest("Timed-out call releases its endpoint, slot and permit", endpoint.getInFlight() == 0
+                    && endpoint.claimSlot("next") == 0 && route.getLimiter().getInFlight() == 0);
+        } finally {
+            stalled.stop();
+        }
+    }
+
+    // === A stand-in llama-server: answers at once, fails on demand, or stalls until the client hangs up ===
+    static class StubServer {
+        static final long STALL_MILLIS = 5_000;
+
+        final String name;
+        final HttpServer server;
+        final AtomicInteger requests = new AtomicInteger();
+
+        StubServer(String name, Predicate<HttpExchange> failWhen) throws IOException {
+            this(name, failWhen, exchange -> false, null);
+        }
+
+        StubServer(String name, AtomicBoolean stallNext, CountDownLatch closed) throws IOException {
+            this(name, exchange -> false, exchange -> stallNext.compareAndSet(true, false), closed);
+        }
+
+        // Stalls every request
+        StubServer(String name, CountDownLatch closed) throws IOException {
+            this(name, exchange -> false, exchange -> true, closed);
+        }
+
+        private StubServer(String name, Predicate<HttpExchange> failWhen, Predicate<HttpExchange> stallWhen,
+                           CountDownLatch closed) throws IOException {
+            this.name = name;
+            this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+            server.createContext("/v1/chat/completions", exchange -> {
+                requests.incrementAndGet();
+                exchange.getRequestBody().readAllBytes();
+                if (failWhen.test(exchange)) {
+                    exchange.sendResponseHeaders(500, -1);
+                    exchange.close();
+                } else if (stallWhen.test(exchange)) {
+                    stall(exchange, closed);
+                } else {
+                    byte[] body = reply().getBytes(StandardCharsets.UTF_8);
+                    exchange.sendResponseHeaders(200, body.length);
+                    exchange.getResponseBody().write(body);
+                    exchange.close();
+                }
+            });
+            server.start();
+        }
+
+        // Trickles whitespace so a closed connection shows up as a failed write
+        private void stall(HttpExchange exchange, CountDownLatch closed) {
+            try {
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream out = exchange.getResponseBody();
+                for (long waited = 0; waited < STALL_MILLIS; waited += 20) {
+                    out.write(' ');
+                    out.flush();
+                    Thread.sleep(20);
+                }
+                out.write(reply().getBytes(StandardCharsets.UTF_8));
+                exchange.close();
+            } catch (IOException e) {
+                closed.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        String reply() {
+            return "{\"choices\": [{\"message\": {\"role\": \"assistant\", \"content\": \"from " + name + "\"}}]}";
+        }
+
+        String url() {
+            return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions";
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+    }
+
+    static void assertTest(String name, boolean condition) {
+        if (condition) {
+            System.out.println("  PASS: " + name);
+            passed++;
+        } else {
+            System.out.println("  FAIL: " + name);
+            failed++;
+        }
+    }
+}
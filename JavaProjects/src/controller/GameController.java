@@ -6,6 +6,11 @@ import model.error.InventoryFullException;
 import model.error.PlayerAlreadyDeadException;
 import view.ConsoleViewImpl;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 
@@ -23,7 +28,7 @@ public class GameController {
 
     public GameController(GameDifficulty difficulty) {
         this(difficulty, new LLMServiceImpl(
-                "http://localhost:8080/v1/chat/completions",
+                LLMServiceImpl.DEFAULT_ENDPOINT,
                 "qwen2.5-3b-instruct",
                 60,
                 3
@@ -48,15 +53,40 @@ public class GameController {
         this.player = new Player(player_name);
         this.mapbuilder = new MapBuilder(this.llmService);
         this.commandparser = new CommandParser();
-
-        Room spawnRoom = this.mapbuilder.generateMap(totalrooms);
+        ContentLibrary library = openLibrary();
+        this.mapbuilder.setLibrary(library);
+
+        // -Djavarpg.worldgen.budget=N starts the game after N seconds whatever the model has named by then
+        long budget = Long.getLong("javarpg.worldgen.budget", 0);
+        Room spawnRoom = budget > 0
+                ? this.mapbuilder.generateMap(totalrooms, Duration.ofSeconds(budget))
+                : this.mapbuilder.generateMap(totalrooms);
         Map<Integer, Room> worldMap = this.mapbuilder.getWorldMap();
         this.gameState.initialize(this.player, spawnRoom, worldMap);
 
         // Recreate challenge controller with the new game state
         this.challengeController = new ChallengeController(llmService, view, gameState, evaluator);
+        this.challengeController.setLibrary(library, this.mapbuilder.getDungeonTheme());
 
-        gameLoop(this.gameState, scanner);
+        try {
+            gameLoop(this.gameState, scanner);
+        } finally {
+            this.mapbuilder.shutdown(); // a lazy world's naming threads outlive the loop otherwise
+        }
+    }
+
+    // -Djavarpg.worldgen.library=file builds worlds from a library made by LibraryBuilder
+    private ContentLibrary openLibrary() {
+        String file = System.getProperty("javarpg.worldgen.library");
+        if (file == null) {
+            return null;
+        }
+        try {
+            return ContentLibrary.open(Path.of(file));
+        } catch (IOException e) {
+            view.displayWarning("Content library not loaded, asking the LLM instead: " + e.getMessage());
+            return null;
+        }
     }
 
     public void gameLoop(GameState gamestate, Scanner scanner) throws Exception {
@@ -430,6 +460,9 @@ public class GameController {
     }
 
     private void enterRoom(Room room) {
+        if (mapbuilder != null) {
+            mapbuilder.prepareRoom(room); // lazy worlds name rooms as the player reaches them
+        }
         boolean firstVisit = !room.isVisited();
 
         if (firstVisit) {
@@ -444,14 +477,38 @@ public class GameController {
         if (firstVisit) {
             view.displaySuccess("+10 XP for exploring new area");
         }
-        if (firstVisit && Math.random() < 0.6) {
+        // Under load the LLM is kept for the challenges that gate progress
+        DegradationTier tier = llmService.getDegradationTier();
+        if (firstVisit && tier != DegradationTier.MINIMAL && Math.random() < 0.6) {
             triggerExplorationChallenge(room);
         }
+        if (tier == DegradationTier.FULL) {
+            prefetchNeighbourChallenges(room);
+        } else {
+            challengeController.retainPrefetched(List.of());
+        }
+    }
+
+    // Most first visits roll an exploration challenge, so start generating them before the player moves
+    private void prefetchNeighbourChallenges(Room room) {
+        List<Room> candidates = new ArrayList<>();
+        for (Map.Entry<Directions, Room> exit : room.getExits().entrySet()) {
+            if (!room.isExitLocked(exit.getKey()) && !exit.getValue().isVisited()) {
+                candidates.add(exit.getValue());
+            }
+        }
+        challengeController.retainPrefetched(candidates);
+        for (Room neighbour : candidates) {
+            challengeController.prefetchChallenge(neighbour, pickRandomChallengeType());
+        }
     }
 
     private void triggerExplorationChallenge(Room room) {
         try {
-            ChallengeType challengeType = pickRandomChallengeType();
+            ChallengeType challengeType = challengeController.getPrefetchedType(room);
+            if (challengeType == null) {
+                challengeType = pickRandomChallengeType();
+            }
             challengeController.initiateChallenge(room , challengeType);
             activeChallenge = challengeController.getActiveChallenge();
             if (activeChallenge == null) {
@@ -725,5 +782,6 @@ public class GameController {
 
     private void handleStats() {
         view.displayStats(player, gameState);
+        view.displayLLMStatus(llmService.getDegradationTier());
     }
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package controller;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How one kind of LLM call is sampled: its token budget, stop sequences, temperature and
+ * timeout. The budget is what keeps a runaway reply from a small model spinning until the
+ * timeout; ProfileStats shows how much of it each kind of call actually uses.
+ */
+public record GenerationProfile(int maxTokens, double temperature, int timeoutSeconds, List<String> stop) {
+
+    public GenerationProfile {
+        stop = List.copyOf(stop);
+    }
+
+    public static GenerationProfile defaultFor(LLMCallType type) {
+        return switch (type) {
+            // A 40-char name and 120-char description in JSON is well under 100 tokens
+            case CONTENT -> new GenerationProfile(160, 0.8, 60, List.of("\n```"));
+            case CHALLENGE -> new GenerationProfile(600, 0.7, 45, List.of("\n```"));
+            // Judging should not be creative
+            case EVALUATION -> new GenerationProfile(200, 0.2, 20, List.of("\n```"));
+            case HINT -> new GenerationProfile(80, 0.6, 15, List.of("\n\n"));
+            case NARRATION -> new GenerationProfile(400, 0.8, 60, List.of());
+        };
+    }
+
+    // Defaults with -Djavarpg.llm.profile.<type>.maxTokens / .temperature / .timeout applied on top
+    public static Map<LLMCallType, GenerationProfile> fromProperties() {
+        Map<LLMCallType, GenerationProfile> profiles = new EnumMap<>(LLMCallType.class);
+        for (LLMCallType type : LLMCallType.values()) {
+            GenerationProfile profile = defaultFor(type);
+            String prefix = "javarpg.llm.profile." + type.name().toLowerCase() + ".";
+            profiles.put(type, new GenerationProfile(
+                    Integer.getInteger(prefix + "maxTokens", profile.maxTokens()),
+                    Double.parseDouble(System.getProperty(prefix + "temperature", String.valueOf(profile.temperature()))),
+                    Integer.getInteger(prefix + "timeout", profile.timeoutSeconds()),
+                    profile.stop()));
+        }
+        return profiles;
+    }
+
+    // Budget for one call that produces several items, such as a content batch
+    public GenerationProfile times(int items) {
+        return new GenerationProfile(maxTokens * items, temperature, timeoutSeconds, stop);
+    }
+
+    // Request fields, without surrounding commas
+    public String toJson() {
+        StringBuilder json = new StringBuilder()
+                .append("\"temperature\": ").append(temperature)
+                .append(", \"max_tokens\": ").append(maxTokens);
+        if (!stop.isEmpty()) {
+            json.append(", \"stop\": [");
+            for (int i = 0; i < stop.size(); i++) {
+                if (i > 0) json.append(", ");
+                json.append('"').append(stop.get(i).replace("\\", "\\\\").replace("\"", "\\\"")
+                        .replace("\n", "\\n")).append('"');
+            }
+            json.append(']');
+        }
+        return json.toString();
+    }
+}
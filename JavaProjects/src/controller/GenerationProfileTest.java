@@ -0,0 +1,92 @@
+package controller;
+
+/**
+ * Tests for per-call-type generation profiles and the token/latency stats kept for them.
+ *
+ * Run: java -cp bin controller.GenerationProfileTest
+ */
+public class GenerationProfileTest {
+
+    static int passed = 0;
+    static int failed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== Generation Profile Tests ===\n");
+
+        testEveryTypeHasABudget();
+        testPropertiesOverrideDefaults();
+        testBatchBudgetScales();
+        testOptionsAreJson();
+        testStatsTrackUsage();
+
+        System.out.println("\n=== Results: " + passed + " passed, " + failed + " failed ===");
+        if (failed > 0) System.exit(1);
+    }
+
+    static void testEveryTypeHasABudget() {
+        boolean bounded = true;
+        for (LLMCallType type : LLMCallType.values()) {
+            GenerationProfile profile = GenerationProfile.defaultFor(type);
+            bounded &= profile.maxTokens() > 0 && profile.timeoutSeconds() > 0;
+        }
+        assertTest("Every call type has a token budget and timeout", bounded);
+        assertTest("Evaluation samples colder than content", GenerationProfile.defaultFor(LLMCallType.EVALUATION).temperature()
+                < GenerationProfile.defaultFor(LLMCallType.CONTENT).temperature());
+    }
+
+    static void testPropertiesOverrideDefaults() {
+        System.setProperty("javarpg.llm.profile.hint.maxTokens", "42");
+        System.setProperty("javarpg.llm.profile.hint.temperature", "0.3");
+        try {
+            GenerationProfile hint = GenerationProfile.fromProperties().get(LLMCallType.HINT);
+            GenerationProfile defaults = GenerationProfile.defaultFor(LLMCallType.HINT);
+            assertTest("Properties override budget and temperature",
+                    hint.maxTokens() == 42 && hint.temperature() == 0.3);
+            assertTest("Unset fields keep their defaults",
+                    hint.timeoutSeconds() == defaults.timeoutSeconds() && hint.stop().equals(defaults.stop()));
+        } finally {
+            System.clearProperty("javarpg.llm.profile.hint.maxTokens");
+            System.clearProperty("javarpg.llm.profile.hint.temperature");
+        }
+    }
+
+    static void testBatchBudgetScales() {
+        GenerationProfile content = GenerationProfile.defaultFor(LLMCallType.CONTENT);
+        GenerationProfile batch = content.times(8);
+        assertTest("Batch budget is per item", batch.maxTokens() == content.maxTokens() * 8
+                && batch.temperature() == content.temperature());
+        assertTest("Equal profiles are equal values", batch.equals(content.times(8)));
+    }
+
+    static void testOptionsAreJson() {
+        String json = "{" + GenerationProfile.defaultFor(LLMCallType.HINT).toJson() + "}";
+        String[] fields = JsonReader.readFields(json, "max_tokens", "temperature", "stop");
+        assertTest("Budget, temperature and stops are request fields",
+                "80".equals(fields[0]) && "0.6".equals(fields[1]) && "[\"\\n\\n\"]".equals(fields[2]));
+        assertTest("No stops means no stop field",
+                !GenerationProfile.defaultFor(LLMCallType.NARRATION).toJson().contains("stop"));
+    }
+
+    static void testStatsTrackUsage() {
+        ProfileStats stats = new ProfileStats();
+        stats.record(LLMCallType.HINT, 20, 80, 300);
+        stats.record(LLMCallType.HINT, 80, 80, 900);
+        stats.record(LLMCallType.HINT, -1, 80, 500);
+        assertTest("Average covers reported counts only", stats.getCalls(LLMCallType.HINT) == 3
+                && stats.getAverageTokens(LLMCallType.HINT) == 50);
+        assertTest("Budget hits and peak are kept",
+                stats.getExhausted(LLMCallType.HINT) == 1 && stats.getMaxTokens(LLMCallType.HINT) == 80);
+        assertTest("Latency is kept per type",
+                stats.p95Millis(LLMCallType.HINT) == 900 && stats.p95Millis(LLMCallType.CONTENT) == -1);
+    }
+
+    static void assertTest(String name, boolean condition) {
+        if (condition) {
+            System.out.println("  PASS: " + name);
+            passed++;
+        } else {
+            System.out.println("  FAIL: " + name);
+            failed++;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal pull tokenizer for the JSON the LLM server and the model send back.
+ * Walks the text once, only allocating for values that are actually read, and is
+ * lenient about chatter or code fences around the JSON.
+ */
+public final class JsonReader {
+    public enum Token {
+        START_OBJECT,
+        END_OBJECT,
+        START_ARRAY,
+        END_ARRAY,
+        KEY,
+        STRING,
+        SCALAR,
+        END
+    }
+
+    private final String json;
+    private int pos;
+
+    // Bounds of the current KEY/STRING (inside the quotes) or SCALAR
+    private int tokenStart;
+    private int tokenEnd;
+    private boolean tokenQuoted;
+
+    public JsonReader(String json) {
+        this(json, 0);
+    }
+
+    public JsonReader(String json, int offset) {
+        this.json = json;
+        this.pos = offset;
+    }
+
+    public Token next() {
+        while (pos < json.length()) {
+            char c = json.charAt(pos);
+            switch (c) {
+                case '{' -> { pos++; return Token.START_OBJECT; }
+                case '}' -> { pos++; return Token.END_OBJECT; }
+                case '[' -> { pos++; return Token.START_ARRAY; }
+                case ']' -> { pos++; return Token.END_ARRAY; }
+                case '"' -> {
+                    scanString();
+                    int after = skipWhitespace(pos);
+                    if (after < json.length() && json.charAt(after) == ':') {
+                        pos = after + 1;
+                        return Token.KEY;
+                    }
+                    return Token.STRING;
+                }
+                case ',', ':', ' ', '\n', '\r', '\t' -> pos++;
+                default -> {
+                    tokenStart = pos;
+                    while (pos < json.length() && !isDelimiter(json.charAt(pos))) pos++;
+                    tokenEnd = pos;
+                    tokenQuoted = false;
+                    return Token.SCALAR;
+                }
+            }
+        }
+        return Token.END;
+    }
+
+    // Index of the current KEY in keys, or -1; compares in place without building the key
+    public int matchKey(String... keys) {
+        int length = tokenEnd - tokenStart;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].length() == length && json.regionMatches(tokenStart, keys[i], 0, length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Text of the current STRING (unescaped) or SCALAR (as written)
+    public String text() {
+        return tokenQuoted ? unescape(tokenStart, tokenEnd) : json.substring(tokenStart, tokenEnd);
+    }
+
+    // Reads the value after a KEY: strings unescaped, scalars as written, objects and arrays as raw JSON; null for null
+    public String readValue() {
+        pos = skipWhitespace(pos);
+        if (pos >= json.length()) {
+            return null;
+        }
+        char c = json.charAt(pos);
+        if (c == '{' || c == '[') {
+            int start = pos;
+            skipContainer();
+            return json.substring(start, pos);
+        }
+        Token token = next();
+        if (token != Token.STRING && token != Token.SCALAR) {
+            return null;
+        }
+        String value = text();
+        return token == Token.SCALAR && value.equals("null") ? null : value;
+    }
+
+    private void skipContainer() {
+        int depth = 0;
+        do {
+            Token token = next();
+            if (token == Token.START_OBJECT || token == Token.START_ARRAY) depth++;
+            else if (token == Token.END_OBJECT || token == Token.END_ARRAY) depth--;
+            else if (token == Token.END) return; // truncated
+        } while (depth > 0);
+    }
+
+    // indexOf runs as an intrinsic, far faster than a charAt loop on long content strings
+    private void scanString() {
+        tokenStart = ++pos;
+        int quote = json.indexOf('"', tokenStart);
+        while (quote != -1 && isEscaped(quote)) {
+            quote = json.indexOf('"', quote + 1);
+        }
+        tokenEnd = quote == -1 ? json.length() : quote;
+        tokenQuoted = true;
+        pos = tokenEnd + 1;
+    }
+
+    // A quote is escaped when an odd number of backslashes precede it
+    private boolean isEscaped(int quote) {
+        int backslashes = 0;
+        for (int i = quote - 1; i >= tokenStart && json.charAt(i) == '\\'; i--) {
+            backslashes++;
+        }
+        return (backslashes & 1) == 1;
+    }
+
+    private String unescape(int start, int end) {
+        int i = json.indexOf('\\', start, end);
+        if (i == -1) {
+            return json.substring(start, end); // nothing to unescape
+        }
+        StringBuilder text = new StringBuilder(end - start);
+        int run = start;
+        for (; i != -1; i = json.indexOf('\\', run, end)) {
+            text.append(json, run, i);
+            if (i + 1 >= end) {
+                return text.toString(); // dangling backslash
+            }
+            char c = json.charAt(i + 1);
+            run = i + 2;
+            switch (c) {
+                case 'n' -> c = '\n';
+                case 't' -> c = '\t';
+                case 'r' -> c = '\r';
+                case 'b' -> c = '\b';
+                case 'f' -> c = '\f';
+                case 'u' -> {
+                    if (isHexQuad(i + 2, end)) {
+                        c = (char) Integer.parseInt(json, i + 2, i + 6, 16);
+                        run = i + 6;
+                    } else {
+                        text.append('\\'); // a Windows path or a cut-off escape, not a real one: kept as written
+                    }
+                }
+                default -> { } // \" \\ \/ map to themselves
+            }
+            text.append(c);
+        }
+        return text.append(json, run, end).toString();
+    }
+
+    private boolean isHexQuad(int from, int end) {
+        if (from + 4 > end) {
+            return false;
+        }
+        for (int i = from; i < from + 4; i++) {
+            if (Character.digit(json.charAt(i), 16) < 0) return false;
+        }
+        return true;
+    }
+
+    private int skipWhitespace(int from) {
+        while (from < json.length() && json.charAt(from) <= ' ') from++;
+        return from;
+    }
+
+    private static boolean isDelimiter(char c) {
+        return c <= ' ' || c == ',' || c == '}' || c == ']' || c == '"' || c == ':';
+    }
+
+    // First value of each key, at any depth, in one pass over the first JSON object or array
+    public static String[] readFields(String json, String... keys) {
+        String[] values = new String[keys.length];
+        int start = firstContainer(json);
+        if (start == -1) {
+            return values;
+        }
+
+        JsonReader reader = new JsonReader(json, start);
+        int depth = 0;
+        int found = 0;
+        for (Token token = reader.next(); token != Token.END; token = reader.next()) {
+            switch (token) {
+                case START_OBJECT, START_ARRAY -> depth++;
+                case END_OBJECT, END_ARRAY -> {
+                    if (--depth == 0) return values;
+                }
+                case KEY -> {
+                    int slot = reader.matchKey(keys);
+                    if (slot >= 0 && values[slot] == null) {
+                        values[slot] = reader.readValue();
+                        if (values[slot] != null && ++found == keys.length) return values;
+                    }
+                }
+                default -> { }
+            }
+        }
+        return values;
+    }
+
+    public static String readField(String json, String key) {
+        return readFields(json, key)[0];
+    }
+
+    // One String[] of key values per object in the first array, in order
+    public static List<String[]> readObjects(String json, String... keys) {
+        List<String[]> objects = new ArrayList<>();
+        int start = json == null ? -1 : json.indexOf('[');
+        if (start == -1) {
+            return objects;
+        }
+
+        JsonReader reader = new JsonReader(json, start + 1);
+        String[] current = null;
+        int depth = 1;
+        for (Token token = reader.next(); token != Token.END; token = reader.next()) {
+            switch (token) {
+                case START_OBJECT -> {
+                    if (depth++ == 1) current = new String[keys.length];
+                }
+                case START_ARRAY -> depth++;
+                case END_OBJECT, END_ARRAY -> {
+                    if (--depth == 0) return objects;
+                    if (depth == 1 && current != null) {
+                        objects.add(current);
+                        current = null;
+                    }
+                }
+                case KEY -> {
+                    int slot = reader.matchKey(keys);
+                    if (current != null && slot >= 0 && current[slot] == null) {
+                        current[slot] = reader.readValue();
+                    }
+                }
+                default -> { }
+            }
+        }
+        return objects;
+    }
+
+    private static int firstContainer(String json) {
+        if (json == null) return -1;
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c == '{' || c == '[') return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,181 @@
+package controller;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares JsonReader against the indexOf/regex parsing it replaced, on typical LLM payloads.
+ * A plain warm-up-then-measure harness rather than JMH, since the project has no build tool
+ * to pull it in; numbers are indicative, not rigorous.
+ *
+ * Run: java -cp bin controller.JsonReaderBenchmark [iterations]
+ */
+public class JsonReaderBenchmark {
+
+    static final String CHAT_BODY = "{\"id\":\"chatcmpl-1\",\"object\":\"chat.completion\",\"created\":1,\"model\":\"m\","
+            + "\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":"
+            + "\"{\\\"prompt\\\":\\\"A sphinx blocks the way and asks: \\\\\\\"What walks on four legs?\\\\\\\"\\\",\\\"desc\\\":\\\"Riddle\\\"}\"},"
+            + "\"finish_reason\":\"stop\"}],\"usage\":{\"prompt_tokens\":120,\"completion_tokens\":80,\"total_tokens\":200}}";
+
+    static final String CHALLENGE = "{\"prompt\": \"A sphinx blocks the way and asks what walks on four legs at dawn.\", "
+            + "\"correctAnswer\": \"man\", \"hint1\": \"Think of a life.\", \"hint2\": \"Dawn is childhood.\", "
+            + "\"hint3\": \"It is you.\", \"expectedAnswerPattern\": \"man|human|person\", \"desc\": \"Riddle of the sphinx\", "
+            + "\"alternateAnswers\": [\"human\", \"person\"]}";
+
+    static final String EVALUATION = "{\"isCorrect\": true, \"confidence\": 0.92, "
+            + "\"reasoning\": \"The player named a human, which matches the expected answer.\", \"effectiveness\": \"FULL\"}";
+
+    static final String CONTENT = "{\"name\":\"Frozen Antechamber\",\"description\":\"Ice coats the walls and your breath hangs in the still air.\"}";
+
+    static final String[] CHALLENGE_KEYS = {"prompt", "correctAnswer", "hint1", "hint2", "hint3",
+            "expectedAnswerPattern", "desc", "alternateAnswers",
+            "isCorrect", "confidence", "reasoning", "effectiveness"};
+
+    static long sink;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        System.out.println("=== JSON parsing benchmark (" + iterations + " ops per case) ===\n");
+
+        compare("Chat completion content", iterations,
+                () -> legacyExtractText(CHAT_BODY),
+                () -> JsonReader.readField(CHAT_BODY, "content"));
+        compare("Challenge fields (12 keys)", iterations,
+                () -> legacyParseJsonResponse(CHALLENGE),
+                () -> JsonReader.readFields(CHALLENGE, CHALLENGE_KEYS));
+        compare("Evaluation fields", iterations,
+                () -> legacyEvaluation(EVALUATION),
+                () -> JsonReader.readFields(EVALUATION, "isCorrect", "confidence", "reasoning", "effectiveness"));
+        compare("Content name/description", iterations,
+                () -> new String[]{legacyRegexField(CONTENT, "name"), legacyRegexField(CONTENT, "description")},
+                () -> JsonReader.readFields(CONTENT, "name", "description"));
+
+        System.out.println("\n(sink " + sink + ")");
+    }
+
+    static void compare(String name, int iterations, Supplier<Object> legacy, Supplier<Object> reader) {
+        measure(legacy, iterations); // warm-up
+        measure(reader, iterations);
+        double legacyNs = measure(legacy, iterations);
+        double readerNs = measure(reader, iterations);
+        System.out.printf("  %-28s legacy %8.1f ns/op   JsonReader %8.1f ns/op   (%.1fx)%n",
+                name, legacyNs, readerNs, legacyNs / readerNs);
+    }
+
+    static double measure(Supplier<Object> op, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += op.get().hashCode();
+        }
+        return (System.nanoTime() - start) / (double) iterations;
+    }
+
+    // === The parsers JsonReader replaced, kept verbatim for comparison ===
+
+    static String legacyExtractText(String responseBody) {
+        int contentStart = responseBody.indexOf("\"content\":") + 10;
+        int quoteStart = responseBody.indexOf("\"", contentStart);
+        int i = quoteStart + 1;
+        while (i < responseBody.length()) {
+            char c = responseBody.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '"') break;
+            i++;
+        }
+        String text = responseBody.substring(quoteStart + 1, i);
+        return text.replace("\\n", "\n").replace("\\\"", "\"").replace("\\\\", "\\");
+    }
+
+    static Map<String, String> legacyParseJsonResponse(String json) {
+        Map<String, String> result = new HashMap<>();
+        String cleaned = json.replaceAll("```json\\s*", "").replaceAll("```", "").trim();
+        for (String key : CHALLENGE_KEYS) {
+            String value = legacyExtractJsonValue(cleaned, key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    static String legacyExtractJsonValue(String json, String key) {
+        String pattern = "\"" + key + "\"";
+        int keyIndex = json.indexOf(pattern);
+        if (keyIndex == -1) return null;
+        int colonIndex = json.indexOf(":", keyIndex + pattern.length());
+        if (colonIndex == -1) return null;
+        int valueStart = colonIndex + 1;
+        while (valueStart < json.length() && json.charAt(valueStart) == ' ') valueStart++;
+        if (valueStart >= json.length()) return null;
+
+        char firstChar = json.charAt(valueStart);
+        if (firstChar == '"') {
+            int valueEnd = json.indexOf("\"", valueStart + 1);
+            if (valueEnd == -1) return null;
+            return json.substring(valueStart + 1, valueEnd);
+        } else if (firstChar == '[') {
+            int depth = 0;
+            for (int i = valueStart; i < json.length(); i++) {
+                if (json.charAt(i) == '[') depth++;
+                if (json.charAt(i) == ']') depth--;
+                if (depth == 0) return json.substring(valueStart, i + 1);
+            }
+        } else {
+            int valueEnd = valueStart;
+            while (valueEnd < json.length() && json.charAt(valueEnd) != ','
+                    && json.charAt(valueEnd) != '}' && json.charAt(valueEnd) != ']') {
+                valueEnd++;
+            }
+            return json.substring(valueStart, valueEnd).trim();
+        }
+        return null;
+    }
+
+    static String[] legacyEvaluation(String evaluation) {
+        String cleaned = evaluation.replaceAll("```json\\s*", "").replaceAll("```", "").trim();
+        cleaned = cleaned.substring(cleaned.indexOf('{'), cleaned.lastIndexOf('}') + 1);
+        return new String[]{
+                legacyExtractRawValue(cleaned, "isCorrect"),
+                legacyExtractRawValue(cleaned, "confidence"),
+                legacyExtractString(cleaned, "reasoning"),
+                legacyExtractString(cleaned, "effectiveness")};
+    }
+
+    static String legacyExtractRawValue(String json, String key) {
+        String pattern = "\"" + key + "\"";
+        int keyIndex = json.indexOf(pattern);
+        if (keyIndex == -1) return null;
+        int colonIndex = json.indexOf(":", keyIndex + pattern.length());
+        if (colonIndex == -1) return null;
+        int valueStart = colonIndex + 1;
+        while (valueStart < json.length() && json.charAt(valueStart) == ' ') valueStart++;
+        int valueEnd = valueStart;
+        while (valueEnd < json.length() && json.charAt(valueEnd) != ',' && json.charAt(valueEnd) != '}') valueEnd++;
+        return json.substring(valueStart, valueEnd).trim().replace("\"", "");
+    }
+
+    static String legacyExtractString(String json, String key) {
+        String pattern = "\"" + key + "\"";
+        int keyIndex = json.indexOf(pattern);
+        if (keyIndex == -1) return null;
+        int colonIndex = json.indexOf(":", keyIndex + pattern.length());
+        if (colonIndex == -1) return null;
+        int quoteStart = json.indexOf("\"", colonIndex + 1);
+        if (quoteStart == -1) return null;
+        int quoteEnd = json.indexOf("\"", quoteStart + 1);
+        if (quoteEnd == -1) return null;
+        return json.substring(quoteStart + 1, quoteEnd);
+    }
+
+    static String legacyRegexField(String json, String fieldName) {
+        Pattern pattern = Pattern.compile("\"" + fieldName + "\"\\s*:\\s*\"([^\"]+)\"");
+        Matcher matcher = pattern.matcher(json);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+}
@@ -0,0 +1,93 @@
+package controller;
+
+import java.util.List;
+
+/**
+ * Tests for the single-pass JSON reader used on every LLM response.
+ *
+ * Run: java -cp bin controller.JsonReaderTest
+ */
+public class JsonReaderTest {
+
+    static int passed = 0;
+    static int failed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== JSON Reader Tests ===\n");
+
+        testReadsChatCompletionContent();
+        testHandlesEscapes();
+        testMalformedUnicodeEscapeIsKept();
+        testSkipsChatterAndFences();
+        testRawContainersAndScalars();
+        testReadsObjectArray();
+        testToleratesTruncation();
+
+        System.out.println("\n=== Results: " + passed + " passed, " + failed + " failed ===");
+        if (failed > 0) System.exit(1);
+    }
+
+    static void testReadsChatCompletionContent() {
+        String body = "{\"id\":\"x\",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\","
+                + "\"reasoning_content\":\"thinking\",\"content\":\"Hello there\"}}],\"usage\":{\"total_tokens\":9}}";
+        assertTest("Nested content key is found", "Hello there".equals(JsonReader.readField(body, "content")));
+        assertTest("Keys match exactly, not by suffix",
+                "thinking".equals(JsonReader.readField(body, "reasoning_content")));
+    }
+
+    static void testHandlesEscapes() {
+        String json = "{\"prompt\":\"Say \\\"open\\\"\\nthen \\u0041\\\\\",\"desc\":\"plain\"}";
+        String[] fields = JsonReader.readFields(json, "prompt", "desc");
+        assertTest("Escaped quotes do not end the string", "Say \"open\"\nthen A\\".equals(fields[0]));
+        assertTest("Field after an escaped string is still read", "plain".equals(fields[1]));
+    }
+
+    static void testMalformedUnicodeEscapeIsKept() {
+        String json = "{\"name\":\"C:\\users\",\"description\":\"cut at \\u00\"}";
+        String[] fields = JsonReader.readFields(json, "name", "description");
+        assertTest("\\u without four hex digits is kept as written",
+                "C:\\users".equals(fields[0]) && "cut at \\u00".equals(fields[1]));
+    }
+
+    static void testSkipsChatterAndFences() {
+        String json = "Sure! Here it is:\n```json\n{\"name\": \"Frozen Hall\", \"description\": \"Cold.\"}\n```";
+        String[] fields = JsonReader.readFields(json, "name", "description");
+        assertTest("Leading chatter and fences are skipped",
+                "Frozen Hall".equals(fields[0]) && "Cold.".equals(fields[1]));
+    }
+
+    static void testRawContainersAndScalars() {
+        String json = "{\"isCorrect\": true, \"confidence\": 0.95, \"alternateAnswers\": [\"a\", \"b]\"], \"reasoning\": null}";
+        String[] fields = JsonReader.readFields(json, "isCorrect", "confidence", "alternateAnswers", "reasoning");
+        assertTest("Scalars come back as written", "true".equals(fields[0]) && "0.95".equals(fields[1]));
+        assertTest("Arrays come back as raw JSON", "[\"a\", \"b]\"]".equals(fields[2]));
+        assertTest("JSON null reads as null", fields[3] == null);
+    }
+
+    static void testReadsObjectArray() {
+        String json = "[{\"name\":\"A\",\"description\":\"a\",\"tags\":[{\"name\":\"inner\"}]},"
+                + "{\"description\":\"b\"},{\"name\":\"C\",\"description\":\"c\"}]";
+        List<String[]> objects = JsonReader.readObjects(json, "name", "description");
+        assertTest("One entry per top-level object", objects.size() == 3);
+        assertTest("Nested objects do not start a new entry", "A".equals(objects.get(0)[0]));
+        assertTest("Missing keys stay null", objects.get(1)[0] == null && "b".equals(objects.get(1)[1]));
+        assertTest("Order is preserved", "C".equals(objects.get(2)[0]));
+    }
+
+    static void testToleratesTruncation() {
+        String json = "{\"name\":\"Half\",\"description\":\"cut off mid";
+        String[] fields = JsonReader.readFields(json, "name", "description");
+        assertTest("Values before the cut survive", "Half".equals(fields[0]));
+        assertTest("Null input reads as nothing", JsonReader.readField(null, "name") == null);
+    }
+
+    static void assertTest(String name, boolean condition) {
+        if (condition) {
+            System.out.println("  PASS: " + name);
+            passed++;
+        } else {
+            System.out.println("  FAIL: " + name);
+            failed++;
+        }
+    }
+}
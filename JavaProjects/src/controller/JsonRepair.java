@@ -0,0 +1,255 @@
+package controller;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.regex.Pattern;
+
+/**
+ * Turns the almost-JSON small models write into JSON: code fences and chatter around it,
+ * single quotes, quotes left unescaped inside strings, raw newlines, comments, unquoted keys,
+ * Python literals, trailing commas and replies cut off mid-way. A reply it can salvage costs
+ * a local pass instead of another inference.
+ */
+public final class JsonRepair {
+    private static final Pattern NUMBER = Pattern.compile("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?");
+
+    private JsonRepair() {}
+
+    // The first object or array in text as well-formed JSON, or null if there is none
+    public static String repair(String text) {
+        int start = text == null ? -1 : firstContainer(text);
+        if (start == -1) {
+            return null;
+        }
+
+        StringBuilder out = new StringBuilder(text.length() - start + 8);
+        Deque<Character> open = new ArrayDeque<>(); // closers still owed, innermost first
+        int i = start;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '{', '[' -> {
+                    open.push(c == '{' ? '}' : ']');
+                    out.append(c);
+                    i++;
+                }
+                case '}', ']' -> {
+                    i++;
+                    if (!open.contains(c)) {
+                        continue; // stray closer
+                    }
+                    char closer;
+                    do {
+                        dropDangling(out, open.peek() == '}');
+                        closer = open.pop();
+                        out.append(closer);
+                    } while (closer != c);
+                    if (open.isEmpty()) {
+                        return out.toString(); // whatever follows is chatter
+                    }
+                }
+                case '"', '\'' -> i = readString(text, i, out);
+                case ',', ':' -> {
+                    out.append(c);
+                    i++;
+                }
+                case '/' -> i = skipComment(text, i, out);
+                case '`' -> i = text.length(); // a closing fence: the reply stopped short
+                default -> {
+                    if (c <= ' ') {
+                        out.append(c);
+                        i++;
+                    } else {
+                        i = readBareWord(text, i, out);
+                    }
+                }
+            }
+        }
+
+        // Cut off: finish the last complete value and close what is still open
+        while (!open.isEmpty()) {
+            dropDangling(out, open.peek() == '}');
+            out.append(open.pop());
+        }
+        return out.toString();
+    }
+
+    // Copies a string in either quote style as a double-quoted one; returns the index after it
+    private static int readString(String text, int i, StringBuilder out) {
+        char quote = text.charAt(i++);
+        out.append('"');
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                if (i + 1 >= text.length()) {
+                    i++;
+                    break; // dangling backslash at the cut
+                }
+                char escaped = text.charAt(i + 1);
+                if (escaped == '\'') {
+                    out.append('\''); // \' is not a JSON escape
+                } else if ("\"\\/bfnrt".indexOf(escaped) >= 0 || (escaped == 'u' && isHexQuad(text, i + 2))) {
+                    out.append(c).append(escaped);
+                } else {
+                    out.append("\\\\"); // \x, a Windows path or a cut-short unicode escape: a literal backslash
+                    i++;
+                    continue;
+                }
+                i += 2;
+                continue;
+            }
+            if (c == quote) {
+                if (closesString(text, i + 1)) {
+                    i++;
+                    break;
+                }
+                out.append(quote == '"' ? "\\\"" : "'"); // a quote inside the text
+            } else if (c == '"') {
+                out.append("\\\"");
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else if (c == '\r') {
+                out.append("\\r");
+            } else if (c == '\t') {
+                out.append("\\t");
+            } else if (c >= ' ') {
+                out.append(c);
+            }
+            i++;
+        }
+        out.append('"');
+        return i;
+    }
+
+    private static boolean isHexQuad(String text, int from) {
+        if (from + 4 > text.length()) {
+            return false;
+        }
+        for (int i = from; i < from + 4; i++) {
+            if (Character.digit(text.charAt(i), 16) < 0) return false;
+        }
+        return true;
+    }
+
+    // A quote ends its string only if what follows could follow a string
+    private static boolean closesString(String text, int after) {
+        int next = skipWhitespace(text, after);
+        if (next >= text.length()) {
+            return true;
+        }
+        char c = text.charAt(next);
+        if (c == ':' || c == '}' || c == ']' || c == '`') {
+            return true;
+        }
+        if (c != ',') {
+            return false;
+        }
+        int value = skipWhitespace(text, next + 1);
+        return value >= text.length() || "\"'{[}]/".indexOf(text.charAt(value)) >= 0 || isBareKey(text, value);
+    }
+
+    private static boolean isBareKey(String text, int i) {
+        int end = i;
+        while (end < text.length() && Character.isJavaIdentifierPart(text.charAt(end))) end++;
+        int after = skipWhitespace(text, end);
+        return end > i && after < text.length() && text.charAt(after) == ':';
+    }
+
+    private static int skipComment(String text, int i, StringBuilder out) {
+        if (text.startsWith("//", i)) {
+            int end = text.indexOf('\n', i);
+            return end == -1 ? text.length() : end;
+        }
+        if (text.startsWith("/*", i)) {
+            int end = text.indexOf("*/", i + 2);
+            return end == -1 ? text.length() : end + 2;
+        }
+        return readBareWord(text, i, out);
+    }
+
+    // Unquoted keys get quoted; True/False/None become JSON literals; other bare words become strings
+    private static int readBareWord(String text, int i, StringBuilder out) {
+        int end = i;
+        while (end < text.length() && !isDelimiter(text.charAt(end))) end++;
+        String word = text.substring(i, end);
+        int after = skipWhitespace(text, end);
+        boolean key = after < text.length() && text.charAt(after) == ':';
+        if (key) {
+            out.append('"').append(word).append('"');
+        } else {
+            out.append(switch (word) {
+                case "true", "True", "TRUE" -> "true";
+                case "false", "False", "FALSE" -> "false";
+                case "null", "None", "undefined", "NaN" -> "null";
+                default -> NUMBER.matcher(word).matches() ? word : '"' + word.replace("\"", "\\\"") + '"';
+            });
+        }
+        return end;
+    }
+
+    // Removes a trailing comma, or a key that never got its value, before a container closes
+    private static void dropDangling(StringBuilder out, boolean inObject) {
+        trimTrailing(out);
+        int last = out.length() - 1;
+        if (out.charAt(last) == ',') {
+            out.setLength(last);
+            trimTrailing(out);
+            return;
+        }
+        boolean danglingColon = out.charAt(last) == ':';
+        if (danglingColon) {
+            out.setLength(last);
+            trimTrailing(out);
+            last = out.length() - 1;
+        }
+        if (!inObject || out.charAt(last) != '"') {
+            return;
+        }
+        int opening = openingQuote(out, last);
+        int before = opening - 1;
+        while (before >= 0 && out.charAt(before) <= ' ') before--;
+        char preceding = before >= 0 ? out.charAt(before) : '{';
+        if (danglingColon || preceding == '{' || preceding == ',') { // a key, not a value
+            out.setLength(opening);
+            trimTrailing(out);
+            if (out.charAt(out.length() - 1) == ',') {
+                out.setLength(out.length() - 1);
+            }
+        }
+    }
+
+    // Strings in out were written by readString, so only \" can hide a quote
+    private static int openingQuote(StringBuilder out, int closing) {
+        for (int i = closing - 1; i >= 0; i--) {
+            if (out.charAt(i) == '"') {
+                int backslashes = 0;
+                for (int j = i - 1; j >= 0 && out.charAt(j) == '\\'; j--) backslashes++;
+                if ((backslashes & 1) == 0) return i;
+            }
+        }
+        return 0;
+    }
+
+    private static void trimTrailing(StringBuilder out) {
+        int end = out.length();
+        while (end > 0 && out.charAt(end - 1) <= ' ') end--;
+        out.setLength(end);
+    }
+
+    private static int skipWhitespace(String text, int from) {
+        while (from < text.length() && text.charAt(from) <= ' ') from++;
+        return from;
+    }
+
+    private static boolean isDelimiter(char c) {
+        return c <= ' ' || c == ',' || c == ':' || c == '{' || c == '}' || c == '[' || c == ']' || c == '"' || c == '\'';
+    }
+
+    private static int firstContainer(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '{' || c == '[') return i;
+        }
+        return -1;
+    }
+}
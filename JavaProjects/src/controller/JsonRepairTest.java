@@ -0,0 +1,112 @@
+package controller;
+
+/**
+ * Tests for repairing the almost-valid JSON small models reply with.
+ * Each case is a reply shape seen from local models that the plain reader gets wrong or gives up on.
+ *
+ * Run: java -cp bin controller.JsonRepairTest
+ */
+public class JsonRepairTest {
+
+    static int passed = 0;
+    static int failed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== JSON Repair Tests ===\n");
+
+        testValidJsonPassesThrough();
+        testStripsFencesAndChatter();
+        testClosesTruncatedReply();
+        testDropsDanglingKey();
+        testSingleQuotes();
+        testUnescapedInnerQuotes();
+        testCommentsAndTrailingCommas();
+        testBareKeysAndLiterals();
+        testRawNewlinesAreEscaped();
+        testInvalidEscapesBecomeBackslashes();
+        testNothingToRepair();
+
+        System.out.println("\n=== Results: " + passed + " passed, " + failed + " failed ===");
+        if (failed > 0) System.exit(1);
+    }
+
+    static void testValidJsonPassesThrough() {
+        String json = "{\"prompt\": \"Say \\\"friend\\\" and enter\", \"tags\": [1, 2.5, true, null]}";
+        assertTest("Valid JSON comes back unchanged", json.equals(JsonRepair.repair(json)));
+        assertTest("Escaped quotes survive",
+                "Say \"friend\" and enter".equals(JsonReader.readField(JsonRepair.repair(json), "prompt")));
+    }
+
+    static void testStripsFencesAndChatter() {
+        String reply = "Here you go!\n```json\n{\"name\": \"Cave Rat\"}\n```\nHope that {helps}.";
+        assertTest("Only the first object is kept", "{\"name\": \"Cave Rat\"}".equals(JsonRepair.repair(reply)));
+    }
+
+    static void testClosesTruncatedReply() {
+        String repaired = JsonRepair.repair("{\"prompt\": \"What has keys but\", \"alternateAnswers\": [\"piano\", \"keyb");
+        assertTest("Open string, array and object are closed",
+                "{\"prompt\": \"What has keys but\", \"alternateAnswers\": [\"piano\", \"keyb\"]}".equals(repaired));
+    }
+
+    static void testDropsDanglingKey() {
+        assertTest("Key cut off before its value is dropped",
+                "{\"isCorrect\": true}".equals(JsonRepair.repair("{\"isCorrect\": true, \"confidence\":")));
+        assertTest("Key cut off mid-name is dropped",
+                "{\"isCorrect\": true}".equals(JsonRepair.repair("{\"isCorrect\": true, \"confid")));
+    }
+
+    static void testSingleQuotes() {
+        String repaired = JsonRepair.repair("{'name': 'Ogre's Den', 'description': 'Say \"hi\".'}");
+        String[] fields = JsonReader.readFields(repaired, "name", "description");
+        assertTest("Single-quoted strings become JSON strings",
+                "Ogre's Den".equals(fields[0]) && "Say \"hi\".".equals(fields[1]));
+    }
+
+    static void testUnescapedInnerQuotes() {
+        String repaired = JsonRepair.repair("{\"prompt\": \"The sign reads \"beware\" in red\", \"desc\": \"x\"}");
+        assertTest("Quote inside a value does not end it",
+                "The sign reads \"beware\" in red".equals(JsonReader.readField(repaired, "prompt"))
+                        && "x".equals(JsonReader.readField(repaired, "desc")));
+    }
+
+    static void testCommentsAndTrailingCommas() {
+        String repaired = JsonRepair.repair("{\"a\": 1, // the first\n \"b\": [2, 3,], /* done */}");
+        assertTest("Comments and trailing commas are removed", "{\"a\": 1, \n \"b\": [2, 3]}".equals(repaired));
+        String cut = JsonRepair.repair("{'answer': 'echo', // the rest is missing\n");
+        assertTest("Quote before a comment still closes its string", "echo".equals(JsonReader.readField(cut, "answer")));
+    }
+
+    static void testBareKeysAndLiterals() {
+        String repaired = JsonRepair.repair("{isCorrect: True, confidence: 0.9, effectiveness: FULL, note: None}");
+        assertTest("Bare keys quoted, Python literals mapped, bare words quoted",
+                "{\"isCorrect\": true, \"confidence\": 0.9, \"effectiveness\": \"FULL\", \"note\": null}".equals(repaired));
+    }
+
+    static void testRawNewlinesAreEscaped() {
+        String repaired = JsonRepair.repair("{\"desc\": \"line one\nline two\"}");
+        assertTest("Raw newline inside a string is escaped", "{\"desc\": \"line one\\nline two\"}".equals(repaired));
+    }
+
+    static void testInvalidEscapesBecomeBackslashes() {
+        String repaired = JsonRepair.repair("{\"path\": \"C:\\users\\x\", \"code\": \"\\u0041 \\u00\"}");
+        assertTest("Unknown and cut-short escapes become literal backslashes",
+                "{\"path\": \"C:\\\\users\\\\x\", \"code\": \"\\u0041 \\\\u00\"}".equals(repaired));
+        String[] fields = JsonReader.readFields(repaired, "path", "code");
+        assertTest("Repaired escapes read back as written", "C:\\users\\x".equals(fields[0]) && "A \\u00".equals(fields[1]));
+    }
+
+    static void testNothingToRepair() {
+        assertTest("Prose alone gives null", JsonRepair.repair("I cannot help with that.") == null);
+        assertTest("Null gives null", JsonRepair.repair(null) == null);
+    }
+
+    static void assertTest(String name, boolean condition) {
+        if (condition) {
+            System.out.println("  PASS: " + name);
+            passed++;
+        } else {
+            System.out.println("  FAIL: " + name);
+            failed++;
+        }
+    }
+}
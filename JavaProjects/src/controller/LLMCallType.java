@@ -0,0 +1,32 @@
+package controller;
+
+// What an LLM call is for; latency targets and degradation are tracked per type
+public enum LLMCallType {
+    CONTENT(20_000, 32, true),   // world generation, arrives in bursts
+    CHALLENGE(15_000, 4, false), // two identical requests should still make two different challenges
+    EVALUATION(8_000, 2, true),
+    HINT(8_000, 2, true),
+    NARRATION(10_000, 2, false);
+
+    private final long sloMillis; // p95 the player should see
+    private final int queueLimit; // calls waiting for a slot before the type counts as backed up
+    private final boolean shareable; // identical concurrent calls may share one answer
+
+    LLMCallType(long sloMillis, int queueLimit, boolean shareable) {
+        this.sloMillis = sloMillis;
+        this.queueLimit = queueLimit;
+        this.shareable = shareable;
+    }
+
+    public long getSloMillis() {
+        return sloMillis;
+    }
+
+    public int getQueueLimit() {
+        return queueLimit;
+    }
+
+    public boolean isShareable() {
+        return shareable;
+    }
+}
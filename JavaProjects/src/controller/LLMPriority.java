@@ -0,0 +1,9 @@
+package controller;
+
+// Scheduling class of an LLM call, most urgent first
+public enum LLMPriority {
+    INTERACTIVE, // the player is waiting on it: answer evaluation, hints, narration
+    CHALLENGE,   // challenge generation when a challenge starts
+    CONTENT,     // world generation
+    SPECULATIVE  // prefetch and other work that may never be used
+}
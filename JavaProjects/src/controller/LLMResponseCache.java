@@ -0,0 +1,173 @@
+package controller;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Append-only, memory-mapped store of LLM responses.
+ *
+ * Layout: [magic][end offset] then records of [key length][value length][key][value].
+ * The file is rescanned into an in-memory LRU index on open; when an append would
+ * pass the size cap, least recently used entries are dropped and the live ones are
+ * rewritten to the front of the file.
+ */
+public class LLMResponseCache {
+    private static final int MAGIC = 0x4A525043; // "JRPC"
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final LinkedHashMap<String, Integer> index = new LinkedHashMap<>(64, 0.75f, true); // access order = LRU
+    private int end;
+    private int liveBytes;
+
+    public LLMResponseCache(Path file, int maxBytes) throws IOException {
+        this.capacity = Math.max(maxBytes, HEADER_SIZE + 1024);
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+
+        if (buffer.getInt(0) == MAGIC) {
+            loadIndex();
+        } else {
+            buffer.putInt(0, MAGIC);
+            setEnd(HEADER_SIZE);
+        }
+    }
+
+    private void loadIndex() {
+        // A cap lowered since the file was written just truncates the scan
+        int limit = Math.min(buffer.getInt(4), capacity);
+        int offset = HEADER_SIZE;
+        while (offset + RECORD_HEADER_SIZE <= limit) {
+            int keyLength = buffer.getInt(offset);
+            int valueLength = buffer.getInt(offset + 4);
+            int size = recordSize(keyLength, valueLength);
+            if (keyLength < 0 || valueLength < 0 || offset + size > limit) break; // torn write
+            Integer previous = index.put(readString(offset + RECORD_HEADER_SIZE, keyLength), offset);
+            if (previous != null) {
+                liveBytes -= sizeAt(previous);
+            }
+            liveBytes += size;
+            offset += size;
+        }
+        setEnd(offset);
+    }
+
+    public synchronized String get(String key) {
+        Integer offset = index.get(key);
+        if (offset == null) {
+            return null;
+        }
+        int keyLength = buffer.getInt(offset);
+        int valueLength = buffer.getInt(offset + 4);
+        return readString(offset + RECORD_HEADER_SIZE + keyLength, valueLength);
+    }
+
+    public synchronized void put(String key, String value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        int size = recordSize(keyBytes.length, valueBytes.length);
+        if (size > capacity - HEADER_SIZE) {
+            return; // would never fit
+        }
+        if (end + size > capacity) {
+            compact(size);
+        }
+
+        buffer.putInt(end, keyBytes.length);
+        buffer.putInt(end + 4, valueBytes.length);
+        buffer.put(end + RECORD_HEADER_SIZE, keyBytes);
+        buffer.put(end + RECORD_HEADER_SIZE + keyBytes.length, valueBytes);
+
+        Integer previous = index.put(key, end);
+        if (previous != null) {
+            liveBytes -= sizeAt(previous);
+        }
+        liveBytes += size;
+        setEnd(end + size);
+    }
+
+    // Evict LRU entries until the incoming record fits in half the file, then rewrite the survivors
+    private void compact(int incoming) {
+        var eldest = index.entrySet().iterator();
+        while (eldest.hasNext() && liveBytes + incoming > (capacity - HEADER_SIZE) / 2) {
+            liveBytes -= sizeAt(eldest.next().getValue());
+            eldest.remove();
+        }
+
+        List<Map.Entry<String, byte[]>> survivors = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : index.entrySet()) {
+            int offset = entry.getValue();
+            byte[] record = new byte[sizeAt(offset)];
+            buffer.get(offset, record);
+            survivors.add(Map.entry(entry.getKey(), record));
+        }
+
+        // Re-inserting in LRU order keeps recency intact
+        index.clear();
+        int offset = HEADER_SIZE;
+        for (Map.Entry<String, byte[]> survivor : survivors) {
+            buffer.put(offset, survivor.getValue());
+            index.put(survivor.getKey(), offset);
+            offset += survivor.getValue().length;
+        }
+        setEnd(offset);
+    }
+
+    // Every live entry, without touching recency
+    public synchronized void forEach(BiConsumer<String, String> action) {
+        for (Map.Entry<String, Integer> entry : index.entrySet()) {
+            int offset = entry.getValue();
+            int keyLength = buffer.getInt(offset);
+            action.accept(entry.getKey(), readString(offset + RECORD_HEADER_SIZE + keyLength, buffer.getInt(offset + 4)));
+        }
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized int getUsedBytes() {
+        return end;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void flush() {
+        buffer.force();
+    }
+
+    private void setEnd(int offset) {
+        end = offset;
+        buffer.putInt(4, offset);
+    }
+
+    private int sizeAt(int offset) {
+        return recordSize(buffer.getInt(offset), buffer.getInt(offset + 4));
+    }
+
+    private static int recordSize(int keyLength, int valueLength) {
+        return RECORD_HEADER_SIZE + keyLength + valueLength;
+    }
+
+    private String readString(int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,113 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Where one kind of LLM call goes: the model, the servers hosting it and the concurrency cap
+ * in front of them, plus latency and throughput measured over everything sent that way.
+ * Call types configured alike share one route. Routes on the same servers (say, another model
+ * on the default servers) share the pool and the cap as well, and only differ in model.
+ */
+public class LLMRoute {
+    private static final int LATENCY_WINDOW = 128;
+
+    private final String model;
+    private final List<String> endpoints;
+    private final EndpointPool pool;
+    private final AdaptiveLimiter limiter;
+    private final RequestEncoder encoder;
+
+    private final LatencyWindow latencies = new LatencyWindow(LATENCY_WINDOW);
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final long createdAt = System.currentTimeMillis();
+
+    public LLMRoute(String model, List<String> endpoints, EndpointPool pool, AdaptiveLimiter limiter, RequestEncoder encoder) {
+        this.model = model;
+        this.endpoints = List.copyOf(endpoints);
+        this.pool = pool;
+        this.limiter = limiter;
+        this.encoder = encoder;
+    }
+
+    // "model", "model@host:port,host:port" or "@host:port" for each call type, from
+    // -Djavarpg.llm.route.<type>; types without one use the default route
+    public static Map<LLMCallType, String> specsFromProperties() {
+        Map<LLMCallType, String> specs = new EnumMap<>(LLMCallType.class);
+        for (LLMCallType type : LLMCallType.values()) {
+            String spec = System.getProperty("javarpg.llm.route." + type.name().toLowerCase());
+            if (spec != null && !spec.isBlank()) {
+                specs.put(type, spec.trim());
+            }
+        }
+        return specs;
+    }
+
+    public static String specModel(String spec, String defaultModel) {
+        int at = spec.indexOf('@');
+        String model = (at == -1 ? spec : spec.substring(0, at)).trim();
+        return model.isEmpty() ? defaultModel : model;
+    }
+
+    public static List<String> specEndpoints(String spec, List<String> defaultEndpoints) {
+        int at = spec.indexOf('@');
+        List<String> endpoints = at == -1 ? new ArrayList<>() : EndpointPool.parse(spec.substring(at + 1));
+        return endpoints.isEmpty() ? defaultEndpoints : endpoints;
+    }
+
+    public void record(long latencyMillis, boolean success) {
+        completed.increment();
+        if (success) {
+            latencies.record(latencyMillis);
+        } else {
+            failed.increment();
+        }
+    }
+
+    // p95 of recent successful calls, or -1 before the first one
+    public long p95Millis() {
+        return latencies.p95Millis(1);
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public double getCallsPerMinute() {
+        double minutes = Math.max(1, System.currentTimeMillis() - createdAt) / 60_000.0;
+        return completed.sum() / minutes;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public List<String> getEndpoints() {
+        return endpoints;
+    }
+
+    public EndpointPool getPool() {
+        return pool;
+    }
+
+    public AdaptiveLimiter getLimiter() {
+        return limiter;
+    }
+
+    public RequestEncoder getEncoder() {
+        return encoder;
+    }
+
+    @Override
+    public String toString() {
+        return model + " @ " + String.join(",", endpoints);
+    }
+}
@@ -0,0 +1,81 @@
+package controller;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for parsing per-call-type LLM route specs and the per-route metrics.
+ *
+ * Run: java -cp bin controller.LLMRouteTest
+ */
+public class LLMRouteTest {
+
+    static int passed = 0;
+    static int failed = 0;
+
+    static final List<String> DEFAULT_ENDPOINTS = List.of("http://localhost:8080/v1/chat/completions");
+
+    public static void main(String[] args) {
+        System.out.println("=== LLM Route Tests ===\n");
+
+        testSpecForms();
+        testMetrics();
+        testRoutesShareTheirServers();
+
+        System.out.println("\n=== Results: " + passed + " passed, " + failed + " failed ===");
+        if (failed > 0) System.exit(1);
+    }
+
+    static void testSpecForms() {
+        assertTest("Model only keeps the default servers",
+                LLMRoute.specModel("tiny", "big").equals("tiny")
+                        && LLMRoute.specEndpoints("tiny", DEFAULT_ENDPOINTS).equals(DEFAULT_ENDPOINTS));
+        assertTest("Model and servers",
+                LLMRoute.specModel("tiny@localhost:8081", "big").equals("tiny")
+                        && LLMRoute.specEndpoints("tiny@localhost:8081", DEFAULT_ENDPOINTS)
+                                .equals(List.of("http://localhost:8081/v1/chat/completions")));
+        assertTest("Servers only keeps the default model",
+                LLMRoute.specModel("@localhost:8081,localhost:8082", "big").equals("big")
+                        && LLMRoute.specEndpoints("@localhost:8081,localhost:8082", DEFAULT_ENDPOINTS).size() == 2);
+    }
+
+    static void testMetrics() {
+        LLMRoute route = new LLMRoute("tiny", DEFAULT_ENDPOINTS, null, null, null);
+        assertTest("No calls, no p95", route.p95Millis() == -1);
+        route.record(100, true);
+        route.record(300, true);
+        route.record(5_000, false);
+        assertTest("Failures are counted but kept out of latency",
+                route.getCompleted() == 3 && route.getFailed() == 1 && route.p95Millis() == 300);
+    }
+
+    static void testRoutesShareTheirServers() {
+        List<String> servers = List.of("http://localhost:8080/v1/chat/completions", "http://localhost:8081/v1/chat/completions");
+        LLMServiceImpl llm = new LLMServiceImpl(servers, "big", 60, 3, false, Map.of(
+                LLMCallType.CONTENT, "tiny",
+                LLMCallType.HINT, "tiny@localhost:8081",
+                LLMCallType.NARRATION, "@localhost:8081"));
+        LLMRoute main = llm.getRoute(LLMCallType.EVALUATION);
+        LLMRoute content = llm.getRoute(LLMCallType.CONTENT);
+        assertTest("Model-only route keeps its own model on the default servers' pool and cap",
+                content != main && content.getModel().equals("tiny")
+                        && content.getPool() == main.getPool() && content.getLimiter() == main.getLimiter());
+
+        LLMRoute hint = llm.getRoute(LLMCallType.HINT);
+        LLMRoute narration = llm.getRoute(LLMCallType.NARRATION);
+        assertTest("Routes naming the same servers share a pool and cap",
+                hint != narration && hint.getPool() == narration.getPool() && hint.getLimiter() == narration.getLimiter());
+        assertTest("A server in several pools is one endpoint",
+                hint.getPool().getEndpoints().getFirst() == main.getPool().getEndpoints().get(1));
+    }
+
+    static void assertTest(String name, boolean condition) {
+        if (condition) {
+            System.out.println("  PASS: " + name);
+            passed++;
+        } else {
+            System.out.println("  FAIL: " + name);
+            failed++;
+        }
+    }
+}
@@ -3,9 +3,18 @@ package controller;
 import model.ChallengeDifficulty;
 import model.ChallengeType;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface LLMService {
+    String CONTENT_SYSTEM_PROMPT =
+            "You name locations, creatures, and items for a fantasy RPG. " +
+            "Always respond with ONLY a JSON object like: {\"name\":\"Frozen Antechamber\",\"description\":\"Ice coats the walls and your breath hangs in the still air.\"} " +
+            "No extra text. Keep description under 100 characters. Keep name 2-4 words.";
+
     String generateChallenge(ChallengeType type, ChallengeDifficulty difficulty, String context);
     String generateChallenge(String challengePrompt);
     String evaluateResponse(String playerResponse, String expectedPattern, String challengeContext);
@@ -13,4 +22,80 @@ public interface LLMService {
     Map<String, String> parseJsonResponse(String json);
     String generateText(String systemPrompt, String userPrompt);
     boolean isAvailable();
+
+    // One {name, description} pair per spec, in order; null where the model gave nothing usable.
+    // Services that can't name several entities in one request ask for each in turn.
+    default List<String[]> generateContentBatch(List<ContentSpec> specs) {
+        List<String[]> results = new ArrayList<>();
+        for (ContentSpec spec : specs) {
+            String[] content = JsonReader.readFields(
+                    generateText(CONTENT_SYSTEM_PROMPT, spec.prompt(), ResponseSchema.CONTENT), "name", "description");
+            results.add(content[0] != null && content[1] != null ? content : null);
+        }
+        return results;
+    }
+
+    // Hands each piece of the reply to onToken as it arrives and returns the full text (null on failure).
+    // Services without a streaming transport deliver the whole reply as a single piece.
+    default String generateTextStreaming(String systemPrompt, String userPrompt, Consumer<String> onToken) {
+        String text = generateText(systemPrompt, userPrompt);
+        if (text != null) {
+            onToken.accept(text);
+        }
+        return text;
+    }
+
+    // Non-blocking counterparts: each future completes with what the blocking call would have returned.
+    // The defaults simply run the blocking call on a virtual thread.
+    default CompletableFuture<String> generateTextAsync(String systemPrompt, String userPrompt) {
+        return CompletableFuture.supplyAsync(() -> generateText(systemPrompt, userPrompt), Thread::startVirtualThread);
+    }
+
+    default CompletableFuture<String> generateChallengeAsync(String challengePrompt) {
+        return CompletableFuture.supplyAsync(() -> generateChallenge(challengePrompt), Thread::startVirtualThread);
+    }
+
+    default CompletableFuture<String> evaluateResponseAsync(String playerResponse, String expectedPattern, String challengeContext) {
+        return CompletableFuture.supplyAsync(() -> evaluateResponse(playerResponse, expectedPattern, challengeContext), Thread::startVirtualThread);
+    }
+
+    default CompletableFuture<String> generateHintAsync(String challengePrompt, String expectedAnswer, int hintLevel) {
+        return CompletableFuture.supplyAsync(() -> generateHint(challengePrompt, expectedAnswer, hintLevel), Thread::startVirtualThread);
+    }
+
+    // Priority-aware variants for callers whose work can wait behind the player's (see LLMPriority).
+    // Services without a scheduler ignore the priority.
+    default CompletableFuture<String> generateTextAsync(String systemPrompt, String userPrompt, LLMPriority priority) {
+        return generateTextAsync(systemPrompt, userPrompt);
+    }
+
+    default CompletableFuture<String> generateChallengeAsync(String challengePrompt, LLMPriority priority) {
+        return generateChallengeAsync(challengePrompt);
+    }
+
+    // Raises a call that is still queued to a more urgent class, e.g. a prefetch the player now waits on.
+    // False if it has already started or the service has no queue; the call carries on either way.
+    default boolean promote(CompletableFuture<String> call, LLMPriority priority) {
+        return false;
+    }
+
+    // Constrained variants: the reply is held to the schema by the server (see ResponseSchema); null means
+    // unconstrained. Services that can't enforce one ask as usual and leave it to the caller's parser.
+    default String generateText(String systemPrompt, String userPrompt, ResponseSchema schema) {
+        return generateText(systemPrompt, userPrompt);
+    }
+
+    default CompletableFuture<String> generateTextAsync(String systemPrompt, String userPrompt,
+                                                        LLMPriority priority, ResponseSchema schema) {
+        return generateTextAsync(systemPrompt, userPrompt, priority);
+    }
+
+    // How far the game should back off from the LLM right now; services that don't measure load never degrade
+    default DegradationTier getDegradationTier() {
+        return DegradationTier.FULL;
+    }
+
+    default CompletableFuture<Boolean> isAvailableAsync() {
+        return CompletableFuture.supplyAsync(this::isAvailable, Thread::startVirtualThread);
+    }
 }
@@ -4,138 +4,620 @@ import model.ChallengeDifficulty;
 import model.ChallengeType;
 
 import java.io.IOException;
-import java.net.URI;
+import java.net.ConnectException;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 public class LLMServiceImpl implements LLMService {
-    private final String endpoint;
-    private final String model;
+    public static final String DEFAULT_ENDPOINT = "http://localhost:8080/v1/chat/completions";
+    public static final double TEMPERATURE = 0.7;
+
+    private static final int EJECT_FAILURE_THRESHOLD = 3;
+    private static final long EJECT_MILLIS = 15_000;
+    private static final long PROBE_INTERVAL_MILLIS = 5_000;
+    private static final int MAX_CONCURRENCY_PER_ENDPOINT = 16;
+
+    private final LLMRoute defaultRoute;
+    private final Map<LLMCallType, LLMRoute> routes = new EnumMap<>(LLMCallType.class);
+    // One Endpoint per server URL, and one pool and limiter per set of servers, whichever routes use them,
+    // so a server is never admitted twice and its breaker and slots see all of its traffic
+    private record Backend(EndpointPool pool, AdaptiveLimiter limiter) {}
+    private final Map<String, Endpoint> endpointsByUrl = new HashMap<>();
+    private final Map<List<String>, Backend> backends = new HashMap<>();
+    private final DegradationPolicy policy = new DegradationPolicy();
+    private final SingleFlight<ByteBuffer, String> inFlight = new SingleFlight<>();
+    // Speculative calls still waiting for a permit, by the futures handed out for them, so they can be promoted
+    private record Queued(AdaptiveLimiter limiter, CompletableFuture<AdaptiveLimiter.Permit> permit) {}
+    private final Map<CompletableFuture<String>, Queued> speculative = new ConcurrentHashMap<>();
     private final HttpClient httpClient;
-    private final int timeout; // seconds
+    private final int timeout; // seconds; caps each profile's own timeout
     private final int maxRetries;
+    private final boolean hedging;
+    private final boolean constrained;
+    private final ParseStats parseStats = new ParseStats();
+    private final Map<LLMCallType, GenerationProfile> profiles = GenerationProfile.fromProperties();
+    private final ProfileStats profileStats = new ProfileStats();
+    private final byte[][] slotFields; // closing fields per llama-server slot, appended to each body as sent
 
     public LLMServiceImpl(String endpoint, String model, int timeout, int maxRetries) {
-        this.endpoint = endpoint;
-        this.model = model;
+        this(List.of(endpoint), model, timeout, maxRetries, false);
+    }
+
+    public LLMServiceImpl(List<String> endpoints, String model, int timeout, int maxRetries, boolean hedging) {
+        this(endpoints, model, timeout, maxRetries, hedging, LLMRoute.specsFromProperties());
+    }
+
+    // routeSpecs sends some call types to another model and/or servers (see LLMRoute); the rest use the default
+    public LLMServiceImpl(List<String> endpoints, String model, int timeout, int maxRetries, boolean hedging,
+                          Map<LLMCallType, String> routeSpecs) {
+        int slots = Integer.getInteger("javarpg.llm.slots", 4);
+        this.defaultRoute = newRoute(model, endpoints, slots);
+        Map<String, LLMRoute> configured = new HashMap<>();
+        for (LLMCallType type : LLMCallType.values()) {
+            String spec = routeSpecs.get(type);
+            LLMRoute route = defaultRoute;
+            if (spec != null) {
+                String routeModel = LLMRoute.specModel(spec, model);
+                List<String> routeEndpoints = LLMRoute.specEndpoints(spec, endpoints);
+                if (!routeModel.equals(model) || !routeEndpoints.equals(endpoints)) {
+                    route = configured.computeIfAbsent(routeModel + "@" + routeEndpoints,
+                            key -> newRoute(routeModel, routeEndpoints, slots));
+                }
+            }
+            routes.put(type, route);
+        }
+        this.slotFields = new byte[slots + 1][];
+        this.slotFields[slots] = ", \"cache_prompt\": true}".getBytes(StandardCharsets.US_ASCII);
+        for (int slot = 0; slot < slots; slot++) {
+            this.slotFields[slot] = (", \"cache_prompt\": true, \"id_slot\": " + slot + "}").getBytes(StandardCharsets.US_ASCII);
+        }
         this.timeout = timeout;
         this.maxRetries = maxRetries;
-        this.httpClient = HttpClient.newHttpClient();
+        this.hedging = hedging;
+        // Older servers ignore json_schema; turning it off here is for comparing parse failure rates
+        this.constrained = Boolean.parseBoolean(System.getProperty("javarpg.llm.constrained", "true"));
+        // Async response handling runs on virtual threads, never on the game thread
+        this.httpClient = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
     }
 
-    private String buildRequestBody(String systemPrompt, String userPrompt) {
-        return String.format(
-                "{\"model\": \"%s\", \"messages\": [" +
-                        "{\"role\": \"system\", \"content\": \"%s\"}," +
-                        "{\"role\": \"user\", \"content\": \"%s\"}" +
-                        "], \"temperature\": 0.7}",
-                model,
-                escapeJson(systemPrompt),
-                escapeJson(userPrompt)
-        );
-    }
-
-    private static String escapeJson(String raw) {
-        return raw
-                .replace("\\", "\\\\")   // backslashes first
-                .replace("\"", "\\\"")    // double quotes
-                .replace("\n", "\\n")     // newlines
-                .replace("\r", "\\r")     // carriage returns
-                .replace("\t", "\\t");    // tabs
-    }
-
-    private String sendRequest(String systemPrompt, String userPrompt) {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(endpoint))
+    // Only the model and its encoder belong to the route; servers are shared with any route that names them
+    private LLMRoute newRoute(String model, List<String> endpoints, int slots) {
+        Backend backend = backends.computeIfAbsent(List.copyOf(endpoints), urls -> newBackend(urls, slots));
+        return new LLMRoute(model, endpoints, backend.pool(), backend.limiter(), new RequestEncoder(model, TEMPERATURE));
+    }
+
+    private Backend newBackend(List<String> urls, int slots) {
+        boolean slotAffinity = Boolean.parseBoolean(System.getProperty("javarpg.llm.slotAffinity", "true"));
+        List<Endpoint> members = new ArrayList<>();
+        for (String url : urls) {
+            members.add(endpointsByUrl.computeIfAbsent(url, key -> new Endpoint(key,
+                    new CircuitBreaker(EJECT_FAILURE_THRESHOLD, EJECT_MILLIS), slotAffinity ? slots : 0)));
+        }
+        EndpointPool pool = new EndpointPool(members);
+        // Start from the slot count llama-server was told to expect and let latency move it from there
+        AdaptiveLimiter limiter = new AdaptiveLimiter(slots * pool.size(), 1, MAX_CONCURRENCY_PER_ENDPOINT * pool.size());
+        return new Backend(pool, limiter);
+    }
+
+    // Slots are shared between routes, and a cached prefix is only of use to the model that computed it
+    private static String slotKey(LLMRoute route, String systemPrompt) {
+        return route.getModel() + '\u0001' + systemPrompt;
+    }
+
+    // A route whose servers are all down hands its calls to the default one rather than failing them
+    private LLMRoute routeFor(LLMCallType type) {
+        LLMRoute route = routes.get(type);
+        return route.getPool().isAvailable() ? route : defaultRoute;
+    }
+
+    // What is sent for one call: the route it takes, the encoded body, its shared prompt prefix
+    // and the profile it was encoded with
+    private record Outbound(LLMRoute route, byte[] body, String prefix, GenerationProfile profile) {}
+
+    private int timeoutFor(GenerationProfile profile) {
+        return Math.min(timeout, profile.timeoutSeconds());
+    }
+
+    // The body goes out as-is, no further copy, with its closing brace swapped for the KV cache
+    // fields: cache_prompt keeps the prefix in the slot, id_slot sends the call where it already is
+    private HttpRequest buildRequest(Endpoint endpoint, byte[] body, int slot, int timeoutSeconds) {
+        byte[] closing = slotFields[slot >= 0 ? slot : slotFields.length - 1];
+        return HttpRequest.newBuilder()
+                .uri(endpoint.getUri())
                 .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(buildRequestBody(systemPrompt, userPrompt)))
-                .timeout(Duration.ofSeconds(timeout))
+                .POST(HttpRequest.BodyPublishers.concat(
+                        HttpRequest.BodyPublishers.ofByteArray(body, 0, body.length - 1),
+                        HttpRequest.BodyPublishers.ofByteArray(closing)))
+                .timeout(Duration.ofSeconds(timeoutSeconds))
                 .build();
+    }
 
-        int attempts = 0;
-        while (attempts < maxRetries) {
-            attempts++;
-            try {
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    // Completes with the raw response body, or null once retries or the per-call timeout run out.
+    // While every endpoint is ejected it completes with null straight away so callers fall back at once.
+    // Time spent queued in the limiter counts against the timeout, and against the call type's latency target.
+    private CompletableFuture<String> sendRequestAsync(String systemPrompt, String userPrompt, LLMCallType type,
+                                                      LLMPriority priority, ResponseSchema schema) {
+        return sendRequestAsync(systemPrompt, userPrompt, type, profiles.get(type), priority, schema);
+    }
+
+    private CompletableFuture<String> sendRequestAsync(String systemPrompt, String userPrompt, LLMCallType type,
+                                                      GenerationProfile profile, LLMPriority priority, ResponseSchema schema) {
+        LLMRoute route = routeFor(type);
+        if (!route.getPool().isAvailable()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        byte[] body = route.getEncoder().encode(systemPrompt, userPrompt, profile, constrained ? schema : null, false);
+        Outbound call = new Outbound(route, body, systemPrompt, profile);
+        if (!type.isShareable()) {
+            return dispatch(call, type, priority);
+        }
+        // Byte-identical bodies (same model, prompts and options) are asked once and the answer shared
+        return inFlight.run(ByteBuffer.wrap(body), () -> dispatch(call, type, priority));
+    }
 
-                if (response.statusCode() == 200) {
-                    return response.body();
+    private CompletableFuture<String> dispatch(Outbound call, LLMCallType type, LLMPriority priority) {
+        long start = System.nanoTime();
+        int seconds = timeoutFor(call.profile());
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        CompletableFuture<AdaptiveLimiter.Permit> permit = call.route().getLimiter().acquire(priority, deadline);
+        if (priority != LLMPriority.SPECULATIVE) { // a deep prefetch queue is no sign of trouble
+            policy.enqueued(type);
+            permit.whenComplete((granted, error) -> policy.dequeued(type));
+        }
+        CompletableFuture<String> result = new CompletableFuture<>();
+        if (priority == LLMPriority.SPECULATIVE) {
+            trackQueued(result, new Queued(call.route().getLimiter(), permit));
+        }
+        permit.whenComplete((granted, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
+            CompletableFuture<String> sent = sendWithPermit(call, granted);
+            cancelWith(result, sent);
+            // Timing out completes result normally, so the exchange still holding a slot is cancelled here
+            result.whenComplete((responseBody, failure) -> {
+                if (responseBody == null && !sent.isDone()) {
+                    sent.cancel(true);
+                }
+            });
+            sent.whenComplete((responseBody, failure) -> {
+                if (failure != null) {
+                    result.completeExceptionally(failure);
                 } else {
-                    System.err.println("LLM server responded with error code: " + response.statusCode());
-                    if (attempts < maxRetries) {
-                        System.err.println("Retrying... (" + attempts + "/" + maxRetries + ")");
-                    }
+                    result.complete(responseBody);
                 }
-            } catch (java.net.ConnectException e) {
-                System.err.println("Could not connect to LLM server at " + endpoint + ". Is llama-server running?");
-                break; // no point retrying connection refused
-            } catch (IOException | InterruptedException e) {
-                System.err.println("LLM request failed: " + e.getMessage());
-                if (attempts < maxRetries) {
-                    System.err.println("Retrying... (" + attempts + "/" + maxRetries + ")");
+            });
+        });
+        result.completeOnTimeout(null, seconds, TimeUnit.SECONDS);
+        result.whenComplete((responseBody, error) -> {
+            permit.cancel(false); // leave the queue if still waiting
+            if (!result.isCancelled()) {
+                long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                policy.record(type, latency, responseBody != null);
+                call.route().record(latency, responseBody != null);
+                if (responseBody != null) {
+                    profileStats.record(type, completionTokens(responseBody), call.profile().maxTokens(), latency);
                 }
             }
+        });
+        return result;
+    }
+
+    private CompletableFuture<String> sendWithPermit(Outbound call, AdaptiveLimiter.Permit permit) {
+        Endpoint endpoint = call.route().getPool().acquire(null);
+        if (endpoint == null) {
+            permit.release(AdaptiveLimiter.Outcome.IGNORED);
+            return CompletableFuture.completedFuture(null);
         }
-        return null;
+        CompletableFuture<String> response = attemptAsync(call, endpoint, 1);
+        if (hedging && call.route().getPool().size() > 1) {
+            response = hedge(call, endpoint, response);
+        }
+        response.whenComplete((responseBody, error) -> permit.release(responseBody != null
+                ? AdaptiveLimiter.Outcome.SUCCESS
+                : error != null ? AdaptiveLimiter.Outcome.IGNORED : AdaptiveLimiter.Outcome.FAILURE));
+        return response;
     }
 
-    private String extractJsonFromResponse(String responseBody) {
-        try {
-            // First extract the full content string properly (handling escaped quotes)
-            String content = extractTextFromResponse(responseBody);
-            if (content == null) {
-                return "{\"error\": \"No content in LLM response\"}";
+    // Once the primary has been slower than its own p95, the same request also goes to a
+    // second endpoint; the first non-null answer wins and the other is cancelled
+    private CompletableFuture<String> hedge(Outbound call, Endpoint primary, CompletableFuture<String> first) {
+        long delay = primary.p95Millis();
+        if (delay < 0) {
+            return first; // not enough history yet
+        }
+
+        CompletableFuture<String> result = new CompletableFuture<>();
+        List<CompletableFuture<String>> attempts = new CopyOnWriteArrayList<>(List.of(first));
+        AtomicInteger pending = new AtomicInteger(1);
+        BiConsumer<String, Throwable> settle = (responseBody, error) -> {
+            if (responseBody != null) {
+                result.complete(responseBody);
+            } else if (pending.decrementAndGet() == 0) {
+                result.complete(null);
+            }
+        };
+        first.whenComplete(settle);
+
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+            int outstanding;
+            do {
+                outstanding = pending.get();
+                if (outstanding == 0 || result.isDone()) return;
+            } while (!pending.compareAndSet(outstanding, outstanding + 1));
+
+            Endpoint backup = call.route().getPool().acquire(primary);
+            if (backup == null) {
+                settle.accept(null, null);
+                return;
             }
+            CompletableFuture<String> second = attemptAsync(call, backup, maxRetries); // hedges don't retry
+            attempts.add(second);
+            second.whenComplete(settle);
+        });
 
-            // Find the JSON object within the content
-            int firstBrace = content.indexOf("{");
-            int lastBrace = content.lastIndexOf("}");
+        result.whenComplete((responseBody, error) -> attempts.forEach(attempt -> attempt.cancel(true)));
+        return result;
+    }
 
-            if (firstBrace == -1 || lastBrace == -1) {
-                return "{\"error\": \"No JSON object found in LLM response\"}";
+    // One HTTP exchange per attempt; a retry goes to the least loaded endpoint other than the one that failed
+    private CompletableFuture<String> attemptAsync(Outbound call, Endpoint endpoint, int attempt) {
+        long start = System.nanoTime();
+        int slot = endpoint.claimSlot(slotKey(call.route(), call.prefix()));
+        CompletableFuture<String> result = new CompletableFuture<>();
+        CompletableFuture<HttpResponse<String>> exchange =
+                httpClient.sendAsync(buildRequest(endpoint, call.body(), slot, timeoutFor(call.profile())),
+                        HttpResponse.BodyHandlers.ofString());
+        cancelWith(result, exchange);
+        exchange.whenComplete((response, error) -> {
+            endpoint.releaseSlot(slot);
+            if (result.isCancelled()) {
+                endpoint.abandon();
+                return;
+            }
+            boolean success = error == null && response.statusCode() == 200;
+            endpoint.end(success, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            if (success) {
+                result.complete(response.body());
+                return;
             }
+            startProbeIfEjected(endpoint);
 
-            return content.substring(firstBrace, lastBrace + 1);
-        } catch (Exception e) {
-            return "{\"error\": \"Failed to parse LLM output\"}";
+            boolean connectFailure = error != null && isConnectFailure(error);
+            if (error == null) {
+                System.err.println("LLM server responded with error code: " + response.statusCode());
+            } else if (connectFailure) {
+                System.err.println("Could not connect to LLM server at " + endpoint + ". Is llama-server running?");
+            } else {
+                System.err.println("LLM request failed: " + error.getMessage());
+            }
+
+            if (attempt >= maxRetries) {
+                result.complete(null);
+                return;
+            }
+            Endpoint next = call.route().getPool().acquire(endpoint);
+            if (next == null && !connectFailure && endpoint.tryAcquire()) {
+                next = endpoint; // no point retrying connection refused on the same server
+            }
+            if (next == null) {
+                result.complete(null);
+                return;
+            }
+            System.err.println("Retrying... (" + attempt + "/" + maxRetries + ")");
+            CompletableFuture<String> retry = attemptAsync(call, next, attempt + 1);
+            cancelWith(result, retry);
+            retry.whenComplete((responseBody, failure) -> result.complete(responseBody));
+        });
+        return result;
+    }
+
+    // Cancelling downstream cancels upstream as well. On an HttpClient future cancel(true) aborts
+    // the exchange, and llama-server stops generating once it sees the connection close
+    private static void cancelWith(CompletableFuture<?> downstream, CompletableFuture<?> upstream) {
+        downstream.whenComplete((value, error) -> {
+            if (downstream.isCancelled()) {
+                upstream.cancel(true);
+            }
+        });
+    }
+
+    // While an endpoint is ejected a background probe watches for it coming back,
+    // so recovery does not have to wait for a player action to send a trial request
+    private void startProbeIfEjected(Endpoint endpoint) {
+        if (!endpoint.isEjected() || !endpoint.probing().compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("llm-probe").start(() -> {
+            try {
+                while (endpoint.getBreaker().getState() != CircuitBreaker.State.CLOSED) {
+                    Thread.sleep(PROBE_INTERVAL_MILLIS);
+                    if (probeAsync(endpoint).join()) {
+                        endpoint.getBreaker().recordSuccess();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                endpoint.probing().set(false);
+            }
+        });
+    }
+
+    private static boolean isConnectFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String sendRequest(String systemPrompt, String userPrompt, LLMCallType type,
+                               LLMPriority priority, ResponseSchema schema) {
+        return sendRequestAsync(systemPrompt, userPrompt, type, priority, schema).join();
+    }
+
+    // The reply, or its repaired JSON when that is usable; a reply usable only after repair
+    // is an inference saved from a retry or fallback content
+    private String checked(ResponseSchema schema, String reply) {
+        String repaired = JsonRepair.repair(reply);
+        if (repaired != null && schema.isSatisfiedBy(repaired)) {
+            parseStats.record(schema.getName(), true);
+            if (!schema.isSatisfiedBy(reply)) {
+                parseStats.recordRepair(schema.getName());
+            }
+            return repaired;
+        }
+        parseStats.record(schema.getName(), schema.isSatisfiedBy(reply));
+        return reply;
+    }
+
+    // thenApply that also passes cancellation back upstream, so a caller dropping the result
+    // takes the request out of the limiter queue instead of leaving it to run
+    private CompletableFuture<String> mapResponse(CompletableFuture<String> request, Function<String, String> extract) {
+        CompletableFuture<String> mapped = request.thenApply(responseBody -> responseBody == null ? null : extract.apply(responseBody));
+        mapped.whenComplete((value, error) -> {
+            if (mapped.isCancelled()) {
+                request.cancel(false);
+            }
+        });
+        Queued queued = speculative.get(request);
+        if (queued != null) {
+            trackQueued(mapped, queued); // the caller only ever sees the mapped future
+        }
+        return mapped;
+    }
+
+    // Forgotten as soon as the permit is granted or the call ends
+    private void trackQueued(CompletableFuture<String> call, Queued queued) {
+        speculative.put(call, queued);
+        queued.permit().whenComplete((granted, error) -> speculative.remove(call));
+        call.whenComplete((value, error) -> speculative.remove(call));
+    }
+
+    @Override
+    public boolean promote(CompletableFuture<String> call, LLMPriority priority) {
+        Queued queued = speculative.remove(call);
+        return queued != null && queued.limiter().promote(queued.permit(), priority);
+    }
+
+    private String extractJsonFromResponse(String responseBody, ResponseSchema schema) {
+        String content = JsonReader.readField(responseBody, "content");
+        if (content == null) {
+            parseStats.record(schema.getName(), false);
+            return "{\"error\": \"No content in LLM response\"}";
+        }
+        return checked(schema, content);
+    }
+
+    // usage.completion_tokens as llama-server reports it, or -1
+    private static int completionTokens(String responseBody) {
+        String tokens = JsonReader.readField(responseBody, "completion_tokens");
+        try {
+            return tokens == null ? -1 : Integer.parseInt(tokens);
+        } catch (NumberFormatException e) {
+            return -1;
         }
     }
 
     private String extractTextFromResponse(String responseBody) {
+        String text = JsonReader.readField(responseBody, "content");
+        return text != null ? text : "Look closer at the details.";
+    }
+
+    @Override
+    public String generateText(String systemPrompt, String userPrompt) {
+        return generateTextAsync(systemPrompt, userPrompt).join();
+    }
+
+    @Override
+    public CompletableFuture<String> generateTextAsync(String systemPrompt, String userPrompt) {
+        return generateTextAsync(systemPrompt, userPrompt, LLMPriority.CONTENT);
+    }
+
+    @Override
+    public CompletableFuture<String> generateTextAsync(String systemPrompt, String userPrompt, LLMPriority priority) {
+        return generateTextAsync(systemPrompt, userPrompt, priority, null);
+    }
+
+    @Override
+    public String generateText(String systemPrompt, String userPrompt, ResponseSchema schema) {
+        return generateTextAsync(systemPrompt, userPrompt, LLMPriority.CONTENT, schema).join();
+    }
+
+    @Override
+    public CompletableFuture<String> generateTextAsync(String systemPrompt, String userPrompt,
+                                                       LLMPriority priority, ResponseSchema schema) {
+        return mapResponse(sendRequestAsync(systemPrompt, userPrompt, LLMCallType.CONTENT, priority, schema),
+                responseBody -> schema == null
+                        ? extractTextFromResponse(responseBody)
+                        : checked(schema, extractTextFromResponse(responseBody)));
+    }
+
+    @Override
+    public String generateTextStreaming(String systemPrompt, String userPrompt, Consumer<String> onToken) {
+        GenerationProfile profile = profiles.get(LLMCallType.NARRATION);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutFor(profile));
+        LLMRoute route = routeFor(LLMCallType.NARRATION);
+        // Narration is read live, so it queues first; the deadline only orders the queue, so the wait is bounded here
+        CompletableFuture<AdaptiveLimiter.Permit> waiting = route.getLimiter().acquire(LLMPriority.INTERACTIVE, deadline);
+        AdaptiveLimiter.Permit permit;
+        try {
+            permit = waiting.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            giveUpPermit(waiting);
+            return null;
+        } catch (InterruptedException e) {
+            giveUpPermit(waiting);
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        Endpoint endpoint = route.getPool().acquire(null);
+        if (endpoint == null) {
+            permit.release(AdaptiveLimiter.Outcome.IGNORED);
+            return null;
+        }
+        // No retries: once tokens have been shown a second attempt would repeat them
+        int slot = endpoint.claimSlot(slotKey(route, systemPrompt));
+        HttpRequest request = buildRequest(endpoint, route.getEncoder().encode(systemPrompt, userPrompt, profile, null, true),
+                slot, timeoutFor(profile));
+        StringBuilder text = new StringBuilder();
+        int tokens = 0; // llama-server streams one token per event
+        long start = System.nanoTime();
         try {
-            int contentStart = responseBody.indexOf("\"content\":") + 10;
-            int quoteStart = responseBody.indexOf("\"", contentStart);
-
-            // Walk forward, skipping escaped quotes
-            int i = quoteStart + 1;
-            while (i < responseBody.length()) {
-                char c = responseBody.charAt(i);
-                if (c == '\\') {
-                    i += 2; // skip escaped character
-                    continue;
+            HttpResponse<Stream<String>> response = httpClient.send(request, HttpResponse.BodyHandlers.ofLines());
+            try (Stream<String> lines = response.body()) {
+                if (response.statusCode() != 200) {
+                    System.err.println("LLM server responded with error code: " + response.statusCode());
+                    endStream(route, endpoint, slot, permit, false, start, 0);
+                    return null;
+                }
+                SseParser parser = new SseParser();
+                Iterator<String> events = lines.iterator();
+                while (events.hasNext() && !parser.isDone()) {
+                    String token = parser.accept(events.next());
+                    if (token != null) {
+                        tokens++;
+                        text.append(token);
+                        onToken.accept(token);
+                    }
                 }
-                if (c == '"') break;
-                i++;
             }
+        } catch (ConnectException e) {
+            System.err.println("Could not connect to LLM server at " + endpoint + ". Is llama-server running?");
+        } catch (IOException e) {
+            System.err.println("LLM stream failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            System.err.println("LLM stream failed: " + e.getMessage());
+            Thread.currentThread().interrupt();
+        }
+        endStream(route, endpoint, slot, permit, !text.isEmpty(), start, tokens);
+        return text.isEmpty() ? null : text.toString();
+    }
 
-            String text = responseBody.substring(quoteStart + 1, i);
-            return text.replace("\\n", "\n").replace("\\\"", "\"").replace("\\\\", "\\");
-        } catch (Exception e) {
-            return "Look closer at the details.";
+    // Leaves the limiter's queue; a permit granted just as the wait ran out is handed straight back
+    private static void giveUpPermit(CompletableFuture<AdaptiveLimiter.Permit> waiting) {
+        if (!waiting.cancel(false) && !waiting.isCompletedExceptionally()) {
+            waiting.join().release(AdaptiveLimiter.Outcome.IGNORED);
         }
     }
 
+    private void endStream(LLMRoute route, Endpoint endpoint, int slot, AdaptiveLimiter.Permit permit,
+                           boolean success, long start, int tokens) {
+        long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        endpoint.releaseSlot(slot);
+        permit.release(success ? AdaptiveLimiter.Outcome.SUCCESS : AdaptiveLimiter.Outcome.FAILURE);
+        endpoint.end(success, latency);
+        policy.record(LLMCallType.NARRATION, latency, success);
+        route.record(latency, success);
+        if (success) {
+            profileStats.record(LLMCallType.NARRATION, tokens, profiles.get(LLMCallType.NARRATION).maxTokens(), latency);
+        }
+        startProbeIfEjected(endpoint);
+    }
+
+    private static final String BATCH_CONTENT_SYSTEM_PROMPT =
+            "You name locations, creatures, and items for a fantasy RPG. " +
+            "You are given a numbered list of entities. Respond with ONLY a JSON array holding one object per entity, in the same order, like: " +
+            "[{\"name\":\"Frozen Antechamber\",\"description\":\"Ice coats the walls and your breath hangs in the still air.\"}] " +
+            "No extra text. Keep each description under 100 characters. Keep each name 2-4 words.";
+
     @Override
-    public String generateText(String systemPrompt, String userPrompt) {
-        String responseBody = sendRequest(systemPrompt, userPrompt);
+    public List<String[]> generateContentBatch(List<ContentSpec> specs) {
+        List<String[]> results = new ArrayList<>(Collections.nCopies(specs.size(), null));
+        if (specs.isEmpty()) {
+            return results;
+        }
+
+        StringBuilder userPrompt = new StringBuilder();
+        userPrompt.append("Name and describe each numbered entity below. ") // count goes last to keep this prefix fixed
+                .append("Entities listed together under one room are found there, so make them fit that room.\n");
+        for (int i = 0; i < specs.size(); i++) {
+            ContentSpec spec = specs.get(i);
+            if (spec.group() >= 0 && (i == 0 || specs.get(i - 1).group() != spec.group())) {
+                userPrompt.append("-- Together in one room --\n");
+            }
+            userPrompt.append(i + 1).append(". [").append(spec.kind()).append("] ").append(spec.prompt()).append("\n");
+        }
+        userPrompt.append("Return a JSON array of exactly ").append(specs.size()).append(" objects.");
+
+        ResponseSchema schema = ResponseSchema.contentBatch(specs.size());
+        String responseBody = sendRequestAsync(BATCH_CONTENT_SYSTEM_PROMPT, userPrompt.toString(), LLMCallType.CONTENT,
+                profiles.get(LLMCallType.CONTENT).times(specs.size()), LLMPriority.CONTENT, schema).join();
         if (responseBody == null) {
-            return null;
+            return results;
+        }
+        String content = extractTextFromResponse(responseBody);
+        String repaired = JsonRepair.repair(content);
+        parseContentArray(repaired != null ? repaired : content, results);
+        boolean usable = !results.contains(null);
+        parseStats.record(schema.getName(), usable);
+        if (usable && repaired != null && !repaired.equals(content)) {
+            List<String[]> unrepaired = new ArrayList<>(Collections.nCopies(specs.size(), null));
+            parseContentArray(content, unrepaired);
+            if (unrepaired.contains(null)) {
+                parseStats.recordRepair(schema.getName());
+            }
+        }
+        return results;
+    }
+
+    // Single walk over the array: each top-level object fills the next slot
+    private static void parseContentArray(String content, List<String[]> results) {
+        List<String[]> objects = JsonReader.readObjects(content, "name", "description");
+        for (int slot = 0; slot < objects.size() && slot < results.size(); slot++) {
+            String[] object = objects.get(slot);
+            if (object[0] != null && object[1] != null) {
+                results.set(slot, object);
+            }
         }
-        return extractTextFromResponse(responseBody);
     }
 
     @Override
@@ -143,24 +625,33 @@ public class LLMServiceImpl implements LLMService {
         String systemPrompt = getSystemPromptChallenge(type, difficulty);
         String userPrompt = getUserPromptChallenge(type, difficulty, context);
 
-        String responseBody = sendRequest(systemPrompt, userPrompt);
+        String responseBody = sendRequest(systemPrompt, userPrompt, LLMCallType.CHALLENGE,
+                LLMPriority.CHALLENGE, ResponseSchema.CHALLENGE);
         if (responseBody == null) {
             return null;
         }
-        return extractJsonFromResponse(responseBody);
+        return extractJsonFromResponse(responseBody, ResponseSchema.CHALLENGE);
     }
 
     @Override
     public String generateChallenge(String challengePrompt) {
+        return generateChallengeAsync(challengePrompt).join();
+    }
+
+    @Override
+    public CompletableFuture<String> generateChallengeAsync(String challengePrompt) {
+        return generateChallengeAsync(challengePrompt, LLMPriority.CHALLENGE);
+    }
+
+    @Override
+    public CompletableFuture<String> generateChallengeAsync(String challengePrompt, LLMPriority priority) {
         String systemPrompt = "You generate challenges for a fantasy RPG. " +
                 "Return ONLY a JSON object with these fields: prompt, desc, hint1, hint2, hint3, expectedAnswerPattern. " +
                 "No extra text before or after the JSON.";
 
-        String responseBody = sendRequest(systemPrompt, challengePrompt);
-        if (responseBody == null) {
-            return null;
-        }
-        return extractJsonFromResponse(responseBody);
+        return mapResponse(
+                sendRequestAsync(systemPrompt, challengePrompt, LLMCallType.CHALLENGE, priority, ResponseSchema.CHALLENGE),
+                responseBody -> extractJsonFromResponse(responseBody, ResponseSchema.CHALLENGE));
     }
 
     private static String getUserPromptChallenge(ChallengeType type, ChallengeDifficulty difficulty, String context) {
@@ -197,6 +688,11 @@ public class LLMServiceImpl implements LLMService {
 
     @Override
     public String evaluateResponse(String playerResponse, String expectedPattern, String challengeContext) {
+        return evaluateResponseAsync(playerResponse, expectedPattern, challengeContext).join();
+    }
+
+    @Override
+    public CompletableFuture<String> evaluateResponseAsync(String playerResponse, String expectedPattern, String challengeContext) {
         boolean isCreative = expectedPattern != null && expectedPattern.startsWith("CREATIVE:");
 
         String systemPrompt;
@@ -228,15 +724,18 @@ public class LLMServiceImpl implements LLMService {
             );
         }
 
-        String responseBody = sendRequest(systemPrompt, userPrompt);
-        if (responseBody == null) {
-            return null;
-        }
-        return extractJsonFromResponse(responseBody);
+        return mapResponse(
+                sendRequestAsync(systemPrompt, userPrompt, LLMCallType.EVALUATION, LLMPriority.INTERACTIVE, ResponseSchema.EVALUATION),
+                responseBody -> extractJsonFromResponse(responseBody, ResponseSchema.EVALUATION));
     }
 
     @Override
     public String generateHint(String challengePrompt, String expectedAnswer, int hintLevel) {
+        return generateHintAsync(challengePrompt, expectedAnswer, hintLevel).join();
+    }
+
+    @Override
+    public CompletableFuture<String> generateHintAsync(String challengePrompt, String expectedAnswer, int hintLevel) {
         String levelDescription = switch (hintLevel) {
             case 1 -> "Level 1: Very subtle, a cryptic nudge or thematic clue.";
             case 2 -> "Level 2: More direct, narrows down possibilities.";
@@ -251,13 +750,13 @@ public class LLMServiceImpl implements LLMService {
                 "Challenge: %s\nAnswer: %s\nTarget Intensity: %s\nGenerate the hint now:",
                 challengePrompt, expectedAnswer, levelDescription);
 
-        String responseBody = sendRequest(systemPrompt, userPrompt);
-        if (responseBody == null) {
-            return null;
-        }
-        return extractTextFromResponse(responseBody);
+        return mapResponse(sendRequestAsync(systemPrompt, userPrompt, LLMCallType.HINT, LLMPriority.INTERACTIVE, null), this::extractTextFromResponse);
     }
 
+    private static final String[] CHALLENGE_KEYS = {"prompt", "correctAnswer", "hint1", "hint2", "hint3",
+            "expectedAnswerPattern", "desc", "alternateAnswers",
+            "isCorrect", "confidence", "reasoning", "effectiveness"};
+
     @Override
     public Map<String, String> parseJsonResponse(String json) {
         Map<String, String> result = new HashMap<>();
@@ -265,76 +764,83 @@ public class LLMServiceImpl implements LLMService {
             return result;
         }
 
-        // Strip markdown code fences if present
-        String cleaned = json.replaceAll("```json\\s*", "").replaceAll("```", "").trim();
-
-        // Extract key-value pairs from JSON manually (no external deps)
-        String[] keys = {"prompt", "correctAnswer", "hint1", "hint2", "hint3",
-                "expectedAnswerPattern", "desc", "alternateAnswers",
-                "isCorrect", "confidence", "reasoning", "effectiveness"};
-
-        for (String key : keys) {
-            String value = extractJsonValue(cleaned, key);
-            if (value != null) {
-                result.put(key, value);
+        // One pass for every key; code fences and chatter before the object are skipped
+        String[] values = JsonReader.readFields(json, CHALLENGE_KEYS);
+        for (int i = 0; i < CHALLENGE_KEYS.length; i++) {
+            if (values[i] != null) {
+                result.put(CHALLENGE_KEYS[i], values[i]);
             }
         }
         return result;
     }
 
-    private String extractJsonValue(String json, String key) {
-        String pattern = "\"" + key + "\"";
-        int keyIndex = json.indexOf(pattern);
-        if (keyIndex == -1) return null;
+    // Answered from the endpoint breakers, so asking costs no round trip; every route falls back to the default one
+    @Override
+    public boolean isAvailable() {
+        return defaultRoute.getPool().isAvailable();
+    }
 
-        int colonIndex = json.indexOf(":", keyIndex + pattern.length());
-        if (colonIndex == -1) return null;
+    @Override
+    public CompletableFuture<Boolean> isAvailableAsync() {
+        return CompletableFuture.completedFuture(isAvailable());
+    }
 
-        // Skip whitespace after colon
-        int valueStart = colonIndex + 1;
-        while (valueStart < json.length() && json.charAt(valueStart) == ' ') {
-            valueStart++;
-        }
+    @Override
+    public DegradationTier getDegradationTier() {
+        return policy.evaluate(isAvailable());
+    }
 
-        if (valueStart >= json.length()) return null;
-
-        char firstChar = json.charAt(valueStart);
-        if (firstChar == '"') {
-            // String value
-            int valueEnd = json.indexOf("\"", valueStart + 1);
-            if (valueEnd == -1) return null;
-            return json.substring(valueStart + 1, valueEnd);
-        } else if (firstChar == '[') {
-            // Array value — return as-is
-            int depth = 0;
-            for (int i = valueStart; i < json.length(); i++) {
-                if (json.charAt(i) == '[') depth++;
-                if (json.charAt(i) == ']') depth--;
-                if (depth == 0) return json.substring(valueStart, i + 1);
-            }
-        } else {
-            // Boolean/number — read until comma, brace, or bracket
-            int valueEnd = valueStart;
-            while (valueEnd < json.length() && json.charAt(valueEnd) != ','
-                    && json.charAt(valueEnd) != '}' && json.charAt(valueEnd) != ']') {
-                valueEnd++;
+    // Requests answered by joining an identical one already in flight
+    public long getCoalescedRequests() {
+        return inFlight.getJoined();
+    }
+
+    public GenerationProfile getProfile(LLMCallType type) {
+        return profiles.get(type);
+    }
+
+    public ProfileStats getProfileStats() {
+        return profileStats;
+    }
+
+    public ParseStats getParseStats() {
+        return parseStats;
+    }
+
+    public DegradationPolicy getDegradationPolicy() {
+        return policy;
+    }
+
+    public LLMRoute getRoute(LLMCallType type) {
+        return routes.get(type);
+    }
+
+    // Each distinct route once, the default first
+    public List<LLMRoute> getRoutes() {
+        List<LLMRoute> distinct = new ArrayList<>(List.of(defaultRoute));
+        for (LLMRoute route : routes.values()) {
+            if (!distinct.contains(route)) {
+                distinct.add(route);
             }
-            return json.substring(valueStart, valueEnd).trim();
         }
-        return null;
+        return distinct;
     }
 
-    public boolean isAvailable() {
-        try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(endpoint.replace("/chat/completions", "/models")))
-                    .timeout(Duration.ofSeconds(3))
-                    .GET()
-                    .build();
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            return response.statusCode() == 200;
-        } catch (Exception e) {
-            return false;
-        }
+    public EndpointPool getEndpointPool() {
+        return defaultRoute.getPool();
+    }
+
+    public AdaptiveLimiter getLimiter() {
+        return defaultRoute.getLimiter();
+    }
+
+    private CompletableFuture<Boolean> probeAsync(Endpoint endpoint) {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(endpoint.getModelsUri())
+                .timeout(Duration.ofSeconds(3))
+                .GET()
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> error == null && response.statusCode() == 200);
     }
 }
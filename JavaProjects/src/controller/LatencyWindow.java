@@ -0,0 +1,54 @@
+package controller;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Ring buffer of recent call latencies with a percentile over them.
+ * Samples are timestamped so a reading can ignore ones that have gone stale.
+ */
+public class LatencyWindow {
+    private final long[] latencies; // millis
+    private final long[] recordedAt;
+    private final LongSupplier clock;
+    private int samples;
+
+    public LatencyWindow(int capacity) {
+        this(capacity, System::currentTimeMillis);
+    }
+
+    public LatencyWindow(int capacity, LongSupplier clock) {
+        this.latencies = new long[capacity];
+        this.recordedAt = new long[capacity];
+        this.clock = clock;
+    }
+
+    public synchronized void record(long latencyMillis) {
+        int slot = samples++ % latencies.length;
+        latencies[slot] = latencyMillis;
+        recordedAt[slot] = clock.getAsLong();
+    }
+
+    // p95 of every sample in the window, or -1 with fewer than minSamples
+    public long p95Millis(int minSamples) {
+        return p95Millis(minSamples, Long.MAX_VALUE);
+    }
+
+    // p95 of the samples no older than maxAgeMillis, or -1 with fewer than minSamples of them
+    public synchronized long p95Millis(int minSamples, long maxAgeMillis) {
+        long now = clock.getAsLong();
+        int count = Math.min(samples, latencies.length);
+        long[] recent = new long[count];
+        int fresh = 0;
+        for (int i = 0; i < count; i++) {
+            if (now - recordedAt[i] <= maxAgeMillis) {
+                recent[fresh++] = latencies[i];
+            }
+        }
+        if (fresh < minSamples || fresh == 0) {
+            return -1;
+        }
+        Arrays.sort(recent, 0, fresh);
+        return recent[(int) Math.ceil(fresh * 0.95) - 1];
+    }
+}
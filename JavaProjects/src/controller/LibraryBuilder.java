@@ -0,0 +1,176 @@
+package controller;
+
+import model.ChallengeDifficulty;
+import model.ChallengeType;
+import model.ItemType;
+import model.MonsterDifficulty;
+import model.RoomType;
+import model.monsterType;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Fills a ContentLibrary offline, so games in library mode start without asking the LLM for
+ * anything. Every theme gets perKey rooms, monsters, items and riddles of each kind, with as
+ * many requests in flight as there are server slots. Entries are written as they arrive; run
+ * it again after an interruption and it only asks for what is still missing.
+ *
+ * Run: java -cp bin controller.LibraryBuilder library.bin [model]
+ */
+public class LibraryBuilder {
+    // Content that comes back missing or repeated is asked for again, up to this many times
+    private static final int ROUNDS = 3;
+
+    private record Wanted(String theme, String category, String prompt) {}
+
+    private final LLMService llmService;
+    private final ContentLibrary library;
+    private final int slots;
+    private final Random random = new Random();
+    private final AtomicInteger added = new AtomicInteger();
+
+    public LibraryBuilder(LLMService llmService, ContentLibrary library, int slots) {
+        this.llmService = llmService;
+        this.library = library;
+        this.slots = Math.max(1, slots);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java -cp bin controller.LibraryBuilder <library file> [model]");
+            System.exit(2);
+        }
+        String model = args.length > 1 ? args[1] : "qwen2.5-1.5b-instruct";
+        LLMService llmService = new LLMServiceImpl(
+                EndpointPool.parse(System.getProperty("javarpg.llm.endpoints", LLMServiceImpl.DEFAULT_ENDPOINT)),
+                model, 60, 3, Boolean.getBoolean("javarpg.llm.hedge"));
+        ContentLibrary library = ContentLibrary.openForWriting(Path.of(args[0]),
+                Integer.getInteger("javarpg.library.mb", 64) * 1024 * 1024);
+        // Ctrl-C keeps what has been written so far
+        Runtime.getRuntime().addShutdownHook(new Thread(library::flush));
+
+        String themes = System.getProperty("javarpg.library.themes");
+        LibraryBuilder builder = new LibraryBuilder(llmService, library, Integer.getInteger("javarpg.llm.slots", 4));
+        int added = builder.build(themes != null ? Arrays.asList(themes.split(",")) : MapBuilder.THEMES,
+                Integer.getInteger("javarpg.library.perKey", 50));
+        library.flush();
+        System.out.printf("Added %d entries; %s now holds %d (%d KB)%n",
+                added, args[0], library.size(), library.getUsedBytes() / 1024);
+    }
+
+    // Returns how many entries were added
+    public int build(List<String> themes, int perKey) {
+        try (ExecutorService executor = Executors.newFixedThreadPool(slots, Thread.ofVirtual().name("library-", 0).factory())) {
+            for (String name : themes) {
+                String theme = name.trim();
+                for (ChallengeDifficulty difficulty : ChallengeDifficulty.values()) {
+                    String category = ContentLibrary.riddleCategory(difficulty);
+                    for (int i = library.count(theme, category); i < perKey; i++) {
+                        executor.submit(() -> addRiddle(theme, category, difficulty));
+                    }
+                }
+            }
+            for (int round = 0; round < ROUNDS; round++) {
+                List<List<Wanted>> batches = contentBatches(themes, perKey);
+                if (batches.isEmpty()) {
+                    break;
+                }
+                int before = added.get();
+                List<Future<?>> sent = new ArrayList<>();
+                for (List<Wanted> batch : batches) {
+                    sent.add(executor.submit(() -> addContent(batch)));
+                }
+                for (Future<?> batch : sent) {
+                    try {
+                        batch.get();
+                    } catch (Exception e) {
+                        // counted as missing; the next round asks again
+                    }
+                }
+                System.out.printf("Round %d: %d entries added%n", round + 1, added.get() - before);
+            }
+        }
+        return added.get();
+    }
+
+    // Everything still missing, shuffled within each theme so no two batches ask the same thing
+    private List<List<Wanted>> contentBatches(List<String> themes, int perKey) {
+        List<List<Wanted>> batches = new ArrayList<>();
+        for (String name : themes) {
+            String theme = name.trim();
+            List<Wanted> wanted = new ArrayList<>();
+            for (RoomType type : RoomType.values()) {
+                want(wanted, theme, ContentLibrary.roomCategory(type), perKey,
+                        () -> MapBuilder.buildRoomPrompt(type, random.nextInt(3), 3, theme, List.of(), random));
+            }
+            for (MonsterDifficulty difficulty : MonsterDifficulty.values()) {
+                for (monsterType type : monsterType.values()) {
+                    want(wanted, theme, ContentLibrary.monsterCategory(difficulty, type), perKey,
+                            () -> MapBuilder.buildMonsterPrompt(type, difficulty, theme));
+                }
+            }
+            for (ItemType type : ItemType.values()) {
+                // Keys are always placed at strength 0.5
+                int[] tiers = type == ItemType.KEY ? new int[]{MapBuilder.tierOf(0.5f)} : new int[]{0, 1, 2, 3};
+                for (int tier : tiers) {
+                    want(wanted, theme, ContentLibrary.itemCategory(type, tier), perKey,
+                            () -> MapBuilder.buildItemPrompt(type, (tier + 0.5f) / 4, theme));
+                }
+            }
+            Collections.shuffle(wanted, random);
+            for (int i = 0; i < wanted.size(); i += MapBuilder.CONTENT_BATCH_SIZE) {
+                batches.add(wanted.subList(i, Math.min(i + MapBuilder.CONTENT_BATCH_SIZE, wanted.size())));
+            }
+        }
+        return batches;
+    }
+
+    private void want(List<Wanted> wanted, String theme, String category, int perKey, Supplier<String> prompt) {
+        for (int i = library.count(theme, category); i < perKey; i++) {
+            wanted.add(new Wanted(theme, category, prompt.get()));
+        }
+    }
+
+    private void addContent(List<Wanted> batch) {
+        List<ContentSpec> specs = new ArrayList<>();
+        for (Wanted entry : batch) {
+            specs.add(new ContentSpec(entry.category().split(":")[0], entry.prompt()));
+        }
+        List<String[]> named = llmService.generateContentBatch(specs);
+        for (int i = 0; i < named.size() && i < batch.size(); i++) {
+            String[] content = named.get(i);
+            if (content != null && content[0] != null && content[1] != null
+                    && library.addContent(batch.get(i).theme(), batch.get(i).category(), content)) {
+                progress();
+            }
+        }
+    }
+
+    private void addRiddle(String theme, String category, ChallengeDifficulty difficulty) {
+        String json = llmService.generateChallenge(ChallengeType.RIDDLE, difficulty,
+                "A riddle found in a " + theme + " dungeon.");
+        if (json != null && JsonReader.readField(json, "prompt") != null
+                && JsonReader.readField(json, "expectedAnswerPattern") != null
+                && library.add(theme, category, json)) {
+            progress();
+        }
+    }
+
+    private void progress() {
+        int count = added.incrementAndGet();
+        if (count % 100 == 0) {
+            System.out.printf("%d entries added%n", count);
+        }
+    }
+}
@@ -2,36 +2,174 @@ package controller;
 
 import model.*;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class MapBuilder {
+    // llama-server's default --parallel; override with -Djavarpg.llm.slots=N
+    private static final int DEFAULT_LLM_SLOTS = 4;
+    // Entities named per LLM request
+    static final int CONTENT_BATCH_SIZE = 10;
+    // How long entering a lazy room waits for names still being generated before showing fallbacks;
+    // override with -Djavarpg.worldgen.entryWait=ms
+    private static final long DEFAULT_ENTRY_WAIT_MILLIS = 5000;
+
     private Random random = new Random();
     private Map<Integer, Room> worldMap;
     private String dungeonTheme;
     Room spawnRoom;
     LLMService llmService;
 
+    // World-gen LLM calls run on at most llmSlots virtual threads at once
+    private final int llmSlots;
+    private ExecutorService contentExecutor;
+    private final List<Runnable> pendingContent = new ArrayList<>();
+    // Requests grouped by the room the entity ends up in, rooms in id order, so a batch carries
+    // whole rooms and the model names each room together with its monster and loot
+    private record QueuedContent(ContentSpec spec, CompletableFuture<String[]> result) {}
+    private final Map<Integer, List<QueuedContent>> queuedByRoom = new TreeMap<>();
+    // What placement put in each room, passed to the room's prompt
+    private final Map<Room, List<String>> holdings = new HashMap<>();
+    // Identical prompts in one world share a single answer; diversify tells the copies apart.
+    // Copies in the same room are always told apart, or take/use could not pick between them
+    private final Map<ContentSpec, CompletableFuture<String[]>> queuedByPrompt = new HashMap<>();
+    private final Map<ContentSpec, Integer> copies = new HashMap<>();
+    private final Map<ContentSpec, Set<Integer>> sharedIn = new HashMap<>(); // room ids holding a copy
+    private final boolean diversify;
+    private boolean templatesOnly; // the LLM is too backed up to wait on, so every entity falls back
+    // With a budget, content not named by the deadline falls back and is upgraded when it arrives
+    private boolean bounded;
+    private long deadline; // System.nanoTime()
+    // Lazy worlds keep each room's requests queued until the player is next door (see prepareRoom)
+    private final boolean lazy;
+    private final Map<Room, List<CompletableFuture<Void>>> arriving = new HashMap<>();
+    private final long entryWaitMillis;
+    // Past this many ms a content call is answered locally instead (0 waits for the LLM)
+    private final long localAfterMillis;
+    private final ProceduralNames localNames;
+    // Library mode: content is sampled from a pre-generated library and the LLM is never asked
+    private ContentLibrary library;
+    private boolean fromLibrary;
+    private final Set<String> usedNames = new HashSet<>();
+
     public MapBuilder(LLMService llmService) {
+        this(llmService, Integer.getInteger("javarpg.llm.slots", DEFAULT_LLM_SLOTS));
+    }
+
+    public MapBuilder(LLMService llmService, int llmSlots) {
+        this(llmService, llmSlots, Boolean.getBoolean("javarpg.llm.diversify"));
+    }
+
+    public MapBuilder(LLMService llmService, int llmSlots, boolean diversify) {
+        this(llmService, llmSlots, diversify, Boolean.getBoolean("javarpg.worldgen.lazy"));
+    }
+
+    public MapBuilder(LLMService llmService, int llmSlots, boolean diversify, boolean lazy) {
         this.llmService = llmService;
+        this.llmSlots = Math.max(1, llmSlots);
+        this.diversify = diversify;
+        this.lazy = lazy;
+        this.entryWaitMillis = Long.getLong("javarpg.worldgen.entryWait", DEFAULT_ENTRY_WAIT_MILLIS);
         this.worldMap = new HashMap<>();
+        this.localAfterMillis = Long.getLong("javarpg.worldgen.localAfter", 0);
+        this.localNames = localAfterMillis > 0 ? trainLocalNames() : null;
+    }
+
+    // Fallback pools first, then whatever the cache has kept from earlier games
+    private ProceduralNames trainLocalNames() {
+        ProceduralNames names = new ProceduralNames();
+        for (String[][] pool : List.of(EASY_MONSTERS, MEDIUM_MONSTERS, HARD_MONSTERS)) {
+            for (String[] monster : pool) {
+                names.train("monster", monster[0], monster[1]);
+            }
+        }
+        for (ItemType type : ItemType.values()) {
+            for (int tier = 0; tier < 4; tier++) {
+                String[] item = fallbackItemContent(type, (tier + 0.5f) / 4);
+                names.train(type.toString().toLowerCase(), item[0], item[1]);
+            }
+        }
+        for (RoomType type : List.of(RoomType.SAFE, RoomType.BOSS)) {
+            RoomContent room = generateFallbackContent(type, 0);
+            names.train("room", room.title(), room.description());
+        }
+        for (String[] locations : List.of(EARLY_LOCATIONS, MID_LOCATIONS, LATE_LOCATIONS)) {
+            for (String location : locations) {
+                names.train("room", titleCase(location), null);
+            }
+        }
+        if (llmService instanceof CachingLLMService caching) {
+            caching.forEachCachedContent((kind, content) -> names.train(kind, content[0], content[1]));
+        }
+        return names;
+    }
+
+    private static String titleCase(String text) {
+        StringBuilder title = new StringBuilder();
+        for (String word : text.split(" ")) {
+            if (!title.isEmpty()) title.append(' ');
+            title.append(Character.toUpperCase(word.charAt(0))).append(word.substring(1));
+        }
+        return title.toString();
+    }
+
+    public void setLibrary(ContentLibrary library) {
+        this.library = library;
     }
 
     public Room generateMap(int numRooms) {
+        return generateMap(numRooms, null);
+    }
+
+    // Returns within about budget (null waits for every name); names still coming replace the
+    // fallbacks on rooms the player has not entered yet
+    public Room generateMap(int numRooms, Duration budget) {
+        templatesOnly = llmService.getDegradationTier() == DegradationTier.MINIMAL;
+        bounded = budget != null;
+        deadline = bounded ? System.nanoTime() + budget.toNanos() : 0;
+        List<String> libraryThemes = library != null ? library.getThemes() : List.of();
+        fromLibrary = !libraryThemes.isEmpty();
+        usedNames.clear();
+        // The theme doesn't depend on the layout, so it's generated while the graph is built
+        CompletableFuture<String> theme = fromLibrary
+                ? CompletableFuture.completedFuture(libraryThemes.get(random.nextInt(libraryThemes.size())))
+                : generateDungeonTheme();
+        if (bounded) {
+            // Every prompt needs the theme, so it gets half the budget at most
+            theme.completeOnTimeout(chooseRandomTheme(), budget.toMillis() / 2, TimeUnit.MILLISECONDS);
+        }
+        if (localNames != null) {
+            theme.completeOnTimeout(chooseRandomTheme(), localAfterMillis, TimeUnit.MILLISECONDS);
+        }
+
         List<Room> rooms = createRoomGraph(numRooms);
 
         assignRoomTypes(rooms);
 
-        populateRoomContent(rooms);
+        // The spawn room is on screen before the player moves, so late names never replace it
+        spawnRoom = rooms.getFirst();
+        populateRoomContent(rooms, theme.join());
 
-        // Store world map and spawn room
+        // Store world map
         for (Room room : rooms) {
             worldMap.put(room.getId(), room);
         }
-        spawnRoom = rooms.getFirst();
 
         return spawnRoom;
     }
@@ -40,22 +178,303 @@ public class MapBuilder {
         return worldMap;
     }
 
-    private void populateRoomContent(List<Room> rooms) {
-        this.dungeonTheme = generateDungeonTheme();
+    public String getDungeonTheme() {
+        return dungeonTheme;
+    }
+
+    private void populateRoomContent(List<Room> rooms, String theme) {
+        discardLazyState();
+        this.dungeonTheme = theme;
         System.out.println("\n══════════════════════════════════════════════════════════");
         System.out.println("              Generating World...");
         System.out.println("══════════════════════════════════════════════════════════\n");
 
-        for (int i = 0; i < rooms.size(); i++) {
-            Room room = rooms.get(i);
-            RoomContent content = generateRoomContent(room, i, rooms.size(), dungeonTheme);
-            room.setName(content.title());
-            room.setDesc(content.description());
+        // Placement decisions stay on this thread; only the LLM naming fans out. Shutting down
+        // instead of closing lets batches still running past a budget finish in the background.
+        ExecutorService executor = Executors.newFixedThreadPool(llmSlots, Thread.ofVirtual().name("worldgen-", 0).factory());
+        try {
+            contentExecutor = executor;
+
+            // Placement first, so each room's prompt can say what ended up in it
+            placeMonsters(rooms);
+            placeItems(rooms);
+            placeLocks(rooms);
+
+            for (int i = 0; i < rooms.size(); i++) {
+                Room room = rooms.get(i);
+                int roomIndex = i;
+                CompletableFuture<String[]> content = generateRoomContent(room, roomIndex, rooms.size(), dungeonTheme);
+                afterContent(() -> {
+                    String[] named = awaitContent(content, () -> null);
+                    RoomContent resolved = toRoomContent(named, room.getRoomtype(), roomIndex);
+                    room.setName(resolved.title());
+                    room.setDesc(resolved.description());
+                    upgradeLate(room, content, named, late -> {
+                        room.setName(late[0]);
+                        room.setDesc(late[1]);
+                    });
+                });
+            }
+            if (lazy) {
+                // Only the spawn room is waited for; everything else starts from fallbacks and
+                // is named as the player comes next to it
+                List<QueuedContent> spawnNames = queuedByRoom.getOrDefault(spawnRoom.getId(), List.of());
+                requestNames(List.of(spawnRoom));
+                awaitAll(spawnNames.stream().map(QueuedContent::result).toList(),
+                        bounded ? Math.max(0, deadline - System.nanoTime()) : Long.MAX_VALUE);
+                bounded = true;
+                deadline = System.nanoTime();
+            } else {
+                dispatchContentBatches(new ArrayList<>(queuedByRoom.values()));
+                queuedByRoom.clear();
+            }
+
+            // Apply in placement order so rooms list their items the same way as before
+            for (Runnable apply : pendingContent) {
+                apply.run();
+            }
+            if (lazy) {
+                requestNames(spawnRoom.getExits().values());
+            }
+        } finally {
+            pendingContent.clear();
+            holdings.clear();
+            queuedByPrompt.clear();
+            copies.clear();
+            sharedIn.clear();
+            if (!lazy) {
+                executor.shutdown();
+                arriving.clear();
+                contentExecutor = null;
+            }
+        }
+    }
+
+    // Lazy worlds: call as the player enters. Names the room, waiting briefly if its request is
+    // still out, and asks for the rooms next door so they are ready by the time the player is
+    public void prepareRoom(Room room) {
+        if (!lazy || contentExecutor == null) {
+            return;
+        }
+        requestNames(List.of(room));
+        requestNames(room.getExits().values());
+        List<CompletableFuture<Void>> pending = arriving.remove(room);
+        if (pending != null) {
+            awaitAll(pending, TimeUnit.MILLISECONDS.toNanos(entryWait()));
+        }
+    }
+
+    // A backed-up LLM is unlikely to answer within the wait, so the player is held less, or not at all
+    private long entryWait() {
+        return switch (llmService.getDegradationTier()) {
+            case FULL -> entryWaitMillis;
+            case REDUCED -> entryWaitMillis / 5;
+            case MINIMAL -> 0;
+        };
+    }
+
+    // Call when the game ends: rooms still queued are dropped and running batches interrupted
+    public void shutdown() {
+        if (contentExecutor != null) {
+            contentExecutor.shutdownNow();
+            contentExecutor = null;
+        }
+        queuedByRoom.clear();
+        arriving.clear();
+    }
+
+    private void requestNames(Collection<Room> rooms) {
+        List<List<QueuedContent>> groups = new ArrayList<>();
+        for (Room room : rooms) {
+            List<QueuedContent> group = queuedByRoom.remove(room.getId());
+            if (group != null) {
+                groups.add(group);
+            }
+        }
+        if (!groups.isEmpty()) {
+            dispatchContentBatches(groups);
         }
+    }
+
+    // Whatever has not arrived when the wait runs out stays a fallback
+    private void awaitAll(List<? extends CompletableFuture<?>> pending, long waitNanos) {
+        try {
+            CompletableFuture<Void> all = CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new));
+            if (waitNanos == Long.MAX_VALUE) {
+                all.get();
+            } else {
+                all.get(waitNanos, TimeUnit.NANOSECONDS);
+            }
+        } catch (ExecutionException | TimeoutException e) {
+            // fall through
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void discardLazyState() {
+        if (contentExecutor != null) {
+            contentExecutor.shutdown();
+            contentExecutor = null;
+        }
+        queuedByRoom.clear();
+        arriving.clear();
+    }
+
+    // Queued until dispatchContentBatches() so one request can name many entities
+    private CompletableFuture<String[]> requestContent(Room room, String kind, String prompt) {
+        if (templatesOnly) {
+            return CompletableFuture.completedFuture(null);
+        }
+        ContentSpec spec = new ContentSpec(kind, prompt); // shared across rooms, so no group
+        // A lazy room must not wait on a room the player may never reach
+        CompletableFuture<String[]> queued = lazy ? null : queuedByPrompt.get(spec);
+        if (queued != null) {
+            int copy = copies.merge(spec, 1, Integer::sum);
+            boolean sameRoom = !sharedIn.get(spec).add(room.getId());
+            return diversify || sameRoom ? queued.thenApply(content -> vary(content, copy)) : queued;
+        }
+
+        CompletableFuture<String[]> result = new CompletableFuture<>();
+        List<QueuedContent> group = queuedByRoom.computeIfAbsent(room.getId(), id -> new ArrayList<>());
+        QueuedContent entry = new QueuedContent(new ContentSpec(kind, prompt, room.getId()), result);
+        if (kind.equals("room")) {
+            group.addFirst(entry); // players tell rooms apart by name, so each gets its own
+        } else {
+            group.add(entry);
+            queuedByPrompt.put(spec, result);
+            sharedIn.put(spec, new HashSet<>(Set.of(room.getId())));
+        }
+        return result;
+    }
+
+    // Tries a few samples for a name not used yet in this world; null falls back as usual
+    private CompletableFuture<String[]> sampleLibrary(String category) {
+        String[] content = null;
+        for (int attempt = 0; attempt < 4; attempt++) {
+            content = library.sampleContent(dungeonTheme, category, random);
+            if (content == null || usedNames.add(content[0])) {
+                break;
+            }
+        }
+        return CompletableFuture.completedFuture(content);
+    }
 
-        placeMonsters(rooms);
-        placeItems(rooms);
-        placeLocks(rooms);
+    private void hold(Room room, String what) {
+        holdings.computeIfAbsent(room, key -> new ArrayList<>()).add(what);
+    }
+
+    private static final String[] VARIANT_EPITHETS = {"Lesser", "Weathered", "Restless", "Hollow", "Faded", "Grim"};
+
+    // Nth copy of a shared answer: same description, name marked with an epithet
+    private static String[] vary(String[] content, int copy) {
+        if (content == null) {
+            return null;
+        }
+        String epithet = VARIANT_EPITHETS[(copy - 1) % VARIANT_EPITHETS.length];
+        String name = content[0].startsWith("The ")
+                ? "The " + epithet + " " + content[0].substring(4)
+                : epithet + " " + content[0];
+        return new String[]{name, content[1]};
+    }
+
+    // Whole rooms per request, up to CONTENT_BATCH_SIZE entities; only a room bigger than that is split
+    private void dispatchContentBatches(List<List<QueuedContent>> rooms) {
+        List<QueuedContent> batch = new ArrayList<>();
+        for (List<QueuedContent> room : rooms) {
+            if (!batch.isEmpty() && batch.size() + room.size() > CONTENT_BATCH_SIZE) {
+                submitBatch(batch);
+                batch = new ArrayList<>();
+            }
+            for (QueuedContent entry : room) {
+                if (batch.size() == CONTENT_BATCH_SIZE) {
+                    submitBatch(batch);
+                    batch = new ArrayList<>();
+                }
+                batch.add(entry);
+            }
+        }
+        if (!batch.isEmpty()) {
+            submitBatch(batch);
+        }
+    }
+
+    private void submitBatch(List<QueuedContent> batch) {
+        List<ContentSpec> specs = batch.stream().map(QueuedContent::spec).toList();
+        if (localNames != null) {
+            // Made up now, in microseconds; used only if the LLM misses the deadline
+            for (QueuedContent entry : batch) {
+                entry.result().completeOnTimeout(localNames.generate(entry.spec().kind()), localAfterMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        contentExecutor.submit(() -> {
+            try {
+                List<String[]> named = generateContent(specs);
+                for (int i = 0; i < named.size() && i < batch.size(); i++) {
+                    if (named.get(i) == null) {
+                        continue; // left for the fallback below
+                    }
+                    batch.get(i).result().complete(named.get(i));
+                    if (localNames != null) {
+                        localNames.train(specs.get(i).kind(), named.get(i)[0], named.get(i)[1]);
+                    }
+                }
+            } finally {
+                for (QueuedContent entry : batch) {
+                    if (!entry.result().isDone()) { // anything unnamed falls back
+                        entry.result().complete(localNames != null ? localNames.generate(entry.spec().kind()) : null);
+                    }
+                }
+            }
+        });
+    }
+
+    private List<String[]> generateContent(List<ContentSpec> specs) {
+        try {
+            if (specs.size() == 1) {
+                // Not worth the batch framing for a single entity
+                String response = llmService.generateText(LLMService.CONTENT_SYSTEM_PROMPT, specs.getFirst().prompt(), ResponseSchema.CONTENT);
+                String[] content = JsonReader.readFields(response, "name", "description");
+                return content[0] != null && content[1] != null
+                        ? List.<String[]>of(content)
+                        : List.of();
+            }
+            return llmService.generateContentBatch(specs);
+        } catch (Exception e) {
+            return List.of(); // every entity in the batch falls back
+        }
+    }
+
+    private void afterContent(Runnable apply) {
+        pendingContent.add(apply);
+    }
+
+    private <T> T awaitContent(CompletableFuture<T> content, Supplier<T> fallback) {
+        try {
+            T value = bounded
+                    ? content.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)
+                    : content.get();
+            return value != null ? value : fallback.get();
+        } catch (ExecutionException | TimeoutException e) {
+            return fallback.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback.get();
+        }
+    }
+
+    // used is what the entity was built from; if that was a fallback, the real name replaces it
+    // once it arrives, unless the player has already entered the room
+    private void upgradeLate(Room room, CompletableFuture<String[]> content, String[] used, Consumer<String[]> apply) {
+        if (!bounded || room == spawnRoom) {
+            return;
+        }
+        CompletableFuture<Void> upgraded = content.thenAccept(late -> {
+            if (late != null && late != used) {
+                room.updateIfUnvisited(() -> apply.accept(late));
+            }
+        });
+        arriving.computeIfAbsent(room, key -> new ArrayList<>()).add(upgraded);
     }
 
     private void placeLocks(List<Room> rooms) {
@@ -89,8 +508,14 @@ public class MapBuilder {
 
             // Place key in a random room before the locked room
             int keyRoomIndex = random.nextInt(roomIndex); // 0 to roomIndex-1
-            String[] keyContent = generateItemContent(ItemType.KEY, 0.5f);
-            rooms.get(keyRoomIndex).addItem(new Key(keyContent[0], keyContent[1], room.getId()));
+            Room keyRoom = rooms.get(keyRoomIndex);
+            CompletableFuture<String[]> keyContent = generateItemContent(keyRoom, ItemType.KEY, 0.5f);
+            afterContent(() -> {
+                String[] content = awaitContent(keyContent, () -> fallbackItemContent(ItemType.KEY, 0.5f));
+                Key key = new Key(content[0], content[1], room.getId());
+                keyRoom.addItem(key);
+                upgradeLate(keyRoom, keyContent, content, late -> rename(key, late));
+            });
         }
     }
 
@@ -101,25 +526,15 @@ public class MapBuilder {
             if (room.getRoomtype() == RoomType.SAFE) {
                 // Starting gear: weak potion + weak weapon
                 float itemStrength = 0.1f + random.nextFloat() * 0.15f; // 0.10–0.25
-                String[] potionContent = generateItemContent(ItemType.POTION, itemStrength);
-                room.addItem(new Potion(potionContent[0], potionContent[1], healAmountFromStrength(itemStrength)));
-
-                String[] weaponContent = generateItemContent(ItemType.WEAPON, itemStrength);
-                WeaponLvl lvl = WeaponLvl.fromStrength(itemStrength);
-                room.addItem(new Weapon(weaponContent[0], weaponContent[1], lvl.damage, (int) lvl.cooldown));
+                placeItem(room, ItemType.POTION, itemStrength);
+                placeItem(room, ItemType.WEAPON, itemStrength);
 
             } else if (room.getRoomtype() == RoomType.BOSS) {
                 // Reward: strong treasure + strong weapon
                 float itemStrength = 0.75f + random.nextFloat() * 0.25f; // 0.75–1.0
-                String[] treasureContent = generateItemContent(ItemType.TREASURE, itemStrength);
-                room.addItem(new Treasure(treasureContent[0], treasureContent[1], xpRewardFromStrength(itemStrength)));
-
-                String[] potionContent = generateItemContent(ItemType.POTION, itemStrength);
-                room.addItem(new Potion(potionContent[0], potionContent[1], healAmountFromStrength(itemStrength)));
-
-                String[] weaponContent = generateItemContent(ItemType.WEAPON, itemStrength);
-                WeaponLvl lvl = WeaponLvl.fromStrength(itemStrength);
-                room.addItem(new Weapon(weaponContent[0], weaponContent[1], lvl.damage, (int) lvl.cooldown));
+                placeItem(room, ItemType.TREASURE, itemStrength);
+                placeItem(room, ItemType.POTION, itemStrength);
+                placeItem(room, ItemType.WEAPON, itemStrength);
 
             } else if (room.getRoomtype() == RoomType.NORMAL) {
                 int numItems = random.nextInt(3); // 0, 1, or 2 items
@@ -128,22 +543,37 @@ public class MapBuilder {
                     // Pick type: potions common, weapons uncommon, treasure rare
                     float itemStrength = Math.max(0.05f, progress * 0.6f + random.nextFloat() * 0.4f);
                     itemStrength = Math.min(itemStrength, 0.999f);
-                    ItemType type = pickRandomItemType();
-                    String[] content = generateItemContent(type, itemStrength);
-                    switch (type) {
-                        case WEAPON -> {
-                            WeaponLvl lvl = WeaponLvl.fromStrength(itemStrength);
-                            room.addItem(new Weapon(content[0], content[1], lvl.damage, (int) lvl.cooldown));
-                        }
-                        case POTION -> room.addItem(new Potion(content[0], content[1], healAmountFromStrength(itemStrength)));
-                        case TREASURE -> room.addItem(new Treasure(content[0], content[1], xpRewardFromStrength(itemStrength)));
-                        case KEY -> {} // Keys placed in placeLocks() (Section 3)
-                    }
+                    placeItem(room, pickRandomItemType(), itemStrength);
                 }
             }
         }
     }
 
+    private void placeItem(Room room, ItemType type, float itemStrength) {
+        CompletableFuture<String[]> content = generateItemContent(room, type, itemStrength);
+        afterContent(() -> {
+            String[] resolved = awaitContent(content, () -> fallbackItemContent(type, itemStrength));
+            Item item = switch (type) {
+                case WEAPON -> {
+                    WeaponLvl lvl = WeaponLvl.fromStrength(itemStrength);
+                    yield new Weapon(resolved[0], resolved[1], lvl.damage, (int) lvl.cooldown);
+                }
+                case POTION -> new Potion(resolved[0], resolved[1], healAmountFromStrength(itemStrength));
+                case TREASURE -> new Treasure(resolved[0], resolved[1], xpRewardFromStrength(itemStrength));
+                case KEY -> null; // Keys placed in placeLocks() (Section 3)
+            };
+            if (item != null) {
+                room.addItem(item);
+                upgradeLate(room, content, resolved, late -> rename(item, late));
+            }
+        });
+    }
+
+    private static void rename(Item item, String[] content) {
+        item.setName(content[0]);
+        item.setDesc(content[1]);
+    }
+
     private ItemType pickRandomItemType() {
         int roll = random.nextInt(100);
         if (roll < 45) return ItemType.POTION; // 45% potion
@@ -161,27 +591,21 @@ public class MapBuilder {
         return 10 + (int) (strength * 90);
     }
 
-    private String[] generateItemContent(ItemType type , float itemStrength) {
-        String prompt = buildItemPrompt(type , itemStrength , dungeonTheme);
-        try {
-            String response = llmService.generateText(CONTENT_SYSTEM_PROMPT, prompt);
-            if (response != null) {
-                String name = extractJsonField(response, "name");
-                String description = extractJsonField(response, "description");
-                if (name != null && description != null) {
-                    return new String[]{name, description};
-                }
-            }
-        } catch (Exception e) {
-            // fall through to fallback
+    private CompletableFuture<String[]> generateItemContent(Room room, ItemType type , float itemStrength) {
+        hold(room, "a " + type.toString().toLowerCase());
+        if (fromLibrary) {
+            return sampleLibrary(ContentLibrary.itemCategory(type, tierOf(itemStrength)));
         }
-        return fallbackItemContent(type, itemStrength);
+        return requestContent(room, type.toString().toLowerCase(), buildItemPrompt(type , itemStrength , dungeonTheme));
+    }
+
+    // Tier: 0 = weak, 1 = mid, 2 = strong, 3 = legendary
+    static int tierOf(float itemStrength) {
+        return Math.max(0, Math.min((int) (itemStrength * 4), 3));
     }
 
     private String[] fallbackItemContent(ItemType type, float itemStrength) {
-        // Tier: 0 = weak, 1 = mid, 2 = strong, 3 = legendary
-        int tier = (int) (itemStrength * 4);
-        tier = Math.max(0, Math.min(tier, 3));
+        int tier = tierOf(itemStrength);
 
         String[][] weapons = {
                 {"Rusty Dagger", "A pitted blade that's seen better days."},
@@ -210,25 +634,19 @@ public class MapBuilder {
         };
     }
 
-    private String buildItemPrompt(ItemType type, float itemStrength, String dungeonTheme) {
+    static String buildItemPrompt(ItemType type, float itemStrength, String dungeonTheme) {
         String itemType = type.toString().toLowerCase();
+        String quality;
         if (itemStrength < 0.25f) {
-            return String.format(
-                    "A rusty, worn %s found in a %s dungeon. Barely functional. Name and describe it.",
-                    itemType, dungeonTheme);
+            quality = "rusty and worn, barely functional.";
         } else if (itemStrength < 0.5f) {
-            return String.format(
-                    "A sturdy %s crafted for adventurers in a %s dungeon. Reliable and solid. Name and describe it.",
-                    itemType, dungeonTheme);
+            quality = "sturdy, crafted for adventurers, reliable and solid.";
         } else if (itemStrength < 0.75f) {
-            return String.format(
-                    "A rare, enchanted %s hidden deep in a %s dungeon. Glows with faint magic. Name and describe it.",
-                    itemType, dungeonTheme);
+            quality = "rare and enchanted, hidden deep inside, glowing with faint magic.";
         } else {
-            return String.format(
-                    "A legendary %s of immense power from a %s dungeon. Artifact-grade, world-shaking. Name and describe it.",
-                    itemType, dungeonTheme);
+            quality = "legendary and of immense power, artifact-grade, world-shaking.";
         }
+        return entityPrompt(dungeonTheme, "Item", itemType + ", " + quality);
     }
 
 
@@ -265,135 +683,124 @@ public class MapBuilder {
             }
 
             monsterType type = types[random.nextInt(types.length)];
-            String[] content = generateMonsterContent(type, difficulty);
-            Monster monster = new Monster(content[0], content[1], attack, difficulty, type);
-            room.setMonster(monster);
+            MonsterDifficulty monsterDifficulty = difficulty;
+            int monsterAttack = attack;
+            CompletableFuture<String[]> content = generateMonsterContent(room, type, monsterDifficulty);
+            afterContent(() -> {
+                String[] resolved = awaitContent(content, () -> fallbackMonsterContent(type, monsterDifficulty));
+                Monster monster = new Monster(resolved[0], resolved[1], monsterAttack, monsterDifficulty, type);
+                room.setMonster(monster);
+                upgradeLate(room, content, resolved, late -> {
+                    monster.setName(late[0]);
+                    monster.setDesc(late[1]);
+                });
+            });
         }
     }
 
-    private String[] generateMonsterContent(monsterType type, MonsterDifficulty difficulty) {
-        String prompt = buildMonsterPrompt(type, difficulty, dungeonTheme);
-        try {
-            String response = llmService.generateText(CONTENT_SYSTEM_PROMPT, prompt);
-            if (response != null) {
-                String name = extractJsonField(response, "name");
-                String description = extractJsonField(response, "description");
-                if (name != null && description != null) {
-                    return new String[]{name, description};
-                }
-            }
-        } catch (Exception e) {
-            // fall through to fallback
+    private CompletableFuture<String[]> generateMonsterContent(Room room, monsterType type, MonsterDifficulty difficulty) {
+        hold(room, (type == monsterType.UNDEAD ? "an " : "a ") + type.getType().toLowerCase() + " monster");
+        if (fromLibrary) {
+            return sampleLibrary(ContentLibrary.monsterCategory(difficulty, type));
         }
-        return fallbackMonsterContent(type, difficulty);
+        return requestContent(room, "monster", buildMonsterPrompt(type, difficulty, dungeonTheme));
     }
 
-    private String[] fallbackMonsterContent(monsterType type, MonsterDifficulty difficulty) {
-        String[][] easy = {
-                {"Cave Rat", "A mangy rodent with yellowed fangs, hissing from the shadows."},
-                {"Fungal Crawler", "A mold-encrusted insect that skitters across damp stone."},
-                {"Decrepit Skeleton", "Bones held together by faint dark magic, rattling as it moves."}
-        };
-        String[][] medium = {
-                {"Armored Ghoul", "A rotting corpse in rusted chainmail, its dead eyes burning with hunger."},
-                {"Stone Golem", "A hulking figure of cracked granite that grinds forward relentlessly."},
-                {"Shadow Stalker", "A wisp of living darkness that strikes from blind corners."}
-        };
-        String[][] hard = {
-                {"Abyssal Wyrm", "A serpentine horror wreathed in black flame, radiating dread."},
-                {"Iron Revenant", "An undying knight fused to cursed plate armor, sword raised eternally."},
-                {"Dread Chimera", "A three-headed monstrosity that fills the chamber with its roar."}
-        };
+    private static final String[][] EASY_MONSTERS = {
+            {"Cave Rat", "A mangy rodent with yellowed fangs, hissing from the shadows."},
+            {"Fungal Crawler", "A mold-encrusted insect that skitters across damp stone."},
+            {"Decrepit Skeleton", "Bones held together by faint dark magic, rattling as it moves."}
+    };
+    private static final String[][] MEDIUM_MONSTERS = {
+            {"Armored Ghoul", "A rotting corpse in rusted chainmail, its dead eyes burning with hunger."},
+            {"Stone Golem", "A hulking figure of cracked granite that grinds forward relentlessly."},
+            {"Shadow Stalker", "A wisp of living darkness that strikes from blind corners."}
+    };
+    private static final String[][] HARD_MONSTERS = {
+            {"Abyssal Wyrm", "A serpentine horror wreathed in black flame, radiating dread."},
+            {"Iron Revenant", "An undying knight fused to cursed plate armor, sword raised eternally."},
+            {"Dread Chimera", "A three-headed monstrosity that fills the chamber with its roar."}
+    };
 
+    private String[] fallbackMonsterContent(monsterType type, MonsterDifficulty difficulty) {
         String[][] pool = switch (difficulty) {
-            case EASY -> easy;
-            case MEDIUM -> medium;
-            case HARD -> hard;
+            case EASY -> EASY_MONSTERS;
+            case MEDIUM -> MEDIUM_MONSTERS;
+            case HARD -> HARD_MONSTERS;
         };
 
         return pool[random.nextInt(pool.length)];
     }
 
-    private String buildMonsterPrompt(monsterType type, MonsterDifficulty difficulty, String dungeonTheme) {
-        return switch (difficulty) {
-            case EASY -> String.format(
-                    "A weak %s creature lurking in a %s dungeon. Small and unsettling. Name and describe it.",
-                    type.getType(), dungeonTheme);
-            case MEDIUM -> String.format(
-                    "A dangerous %s warrior guarding a %s dungeon. Strong and menacing. Name and describe it.",
-                    type.getType(), dungeonTheme);
-            case HARD -> String.format(
-                    "A terrifying %s boss of a %s dungeon. Massive and dreadful. Name and describe it.",
-                    type.getType(), dungeonTheme);
+    static String buildMonsterPrompt(monsterType type, MonsterDifficulty difficulty, String dungeonTheme) {
+        String role = switch (difficulty) {
+            case EASY -> "a weak creature lurking in the dark, small and unsettling.";
+            case MEDIUM -> "a dangerous warrior guarding the halls, strong and menacing.";
+            case HARD -> "the dungeon's terrifying boss, massive and dreadful.";
         };
+        return entityPrompt(dungeonTheme, "Monster", type.getType() + ", " + role);
     }
 
 
 
-    private String generateDungeonTheme() {
+    private CompletableFuture<String> generateDungeonTheme() {
+        if (templatesOnly) {
+            return CompletableFuture.completedFuture(chooseRandomTheme());
+        }
         String prompt = "Generate a fantasy dungeon theme. Return ONLY: {\"theme\":\"2-3 words\",\"atmosphere\":\"3 adjectives\",\"primaryDanger\":\"2 words\"}";
         try {
-            String response = llmService.generateText(CONTENT_SYSTEM_PROMPT, prompt);
-            if (response == null) return chooseRandomTheme();
-            String theme = extractJsonField(response, "theme");
-            return theme != null ? theme : chooseRandomTheme();
+            return llmService.generateTextAsync(LLMService.CONTENT_SYSTEM_PROMPT, prompt, LLMPriority.CONTENT, ResponseSchema.THEME).handle((response, error) -> {
+                String theme = error == null ? JsonReader.readField(response, "theme") : null;
+                return theme != null ? theme : chooseRandomTheme();
+            });
         } catch (Exception e) {
-            return chooseRandomTheme();
+            return CompletableFuture.completedFuture(chooseRandomTheme());
         }
     }
 
-    private RoomContent generateRoomContent(Room room, int roomIndex, int totalRooms, String roomTheme) {
-        RoomType roomType = room.getRoomtype();
-        String prompt = buildRoomPrompt(roomType, roomIndex, totalRooms, roomTheme);
-        try {
-            String response = llmService.generateText(CONTENT_SYSTEM_PROMPT, prompt);
-            if (response != null) {
-                String name = extractJsonField(response, "name");
-                String description = extractJsonField(response, "description");
-                if (name != null && description != null) {
-                    return new RoomContent(name, description);
-                }
-            }
-        } catch (Exception e) {
-            // fall through to fallback
+    private CompletableFuture<String[]> generateRoomContent(Room room, int roomIndex, int totalRooms, String roomTheme) {
+        if (fromLibrary) {
+            return sampleLibrary(ContentLibrary.roomCategory(room.getRoomtype()));
         }
-        return generateFallbackContent(roomType, roomIndex);
+        return requestContent(room, "room", buildRoomPrompt(room.getRoomtype(), roomIndex, totalRooms, roomTheme,
+                holdings.getOrDefault(room, List.of()), random));
     }
 
-    private static final String CONTENT_SYSTEM_PROMPT =
-            "You name locations, creatures, and items for a fantasy RPG. " +
-            "Always respond with ONLY a JSON object like: {\"name\":\"Frozen Antechamber\",\"description\":\"Ice coats the walls and your breath hangs in the still air.\"} " +
-            "No extra text. Keep description under 100 characters. Keep name 2-4 words.";
+    private RoomContent toRoomContent(String[] content, RoomType type, int roomIndex) {
+        return content != null ? new RoomContent(content[0], content[1]) : generateFallbackContent(type, roomIndex);
+    }
 
-    private String buildRoomPrompt(RoomType roomtype, int roomIndex, int totalRooms, String roomTheme) {
-        // Give the model a concrete location type to anchor on
-        String[] earlyLocations = {"narrow corridor", "dusty alcove", "crumbling passage", "dim antechamber", "moss-covered tunnel"};
-        String[] midLocations = {"vaulted hall", "ritual chamber", "sunken gallery", "collapsed bridge", "echoing vault"};
-        String[] lateLocations = {"scorched sanctum", "bone-littered lair", "cursed throne hall", "abyssal pit", "sealed tomb"};
+    // Give the model a concrete location type to anchor on
+    private static final String[] EARLY_LOCATIONS = {"narrow corridor", "dusty alcove", "crumbling passage", "dim antechamber", "moss-covered tunnel"};
+    private static final String[] MID_LOCATIONS = {"vaulted hall", "ritual chamber", "sunken gallery", "collapsed bridge", "echoing vault"};
+    private static final String[] LATE_LOCATIONS = {"scorched sanctum", "bone-littered lair", "cursed throne hall", "abyssal pit", "sealed tomb"};
 
+    // inside lists what placement put in the room, so its name and description can set the scene for them
+    static String buildRoomPrompt(RoomType roomtype, int roomIndex, int totalRooms, String roomTheme, List<String> inside, Random random) {
+        String contents = inside.isEmpty() ? "" : " Inside: " + String.join(", ", inside) + ".";
         return switch (roomtype) {
-            case SAFE -> String.format(
-                    "A %s dungeon entrance room. Sheltered but with a sense of dread creeping in. Name and describe it.",
-                    roomTheme);
-            case BOSS -> String.format(
-                    "The final boss chamber of a %s dungeon. Massive, terrifying, powerful. Name and describe it.",
-                    roomTheme);
+            case SAFE -> entityPrompt(roomTheme, "Room", "the entrance, sheltered but with a sense of dread creeping in." + contents);
+            case BOSS -> entityPrompt(roomTheme, "Room", "the final boss chamber, massive, terrifying, powerful." + contents);
             case NORMAL -> {
                 String location;
                 if (roomIndex < totalRooms / 3) {
-                    location = earlyLocations[random.nextInt(earlyLocations.length)];
+                    location = EARLY_LOCATIONS[random.nextInt(EARLY_LOCATIONS.length)];
                 } else if (roomIndex < 2 * totalRooms / 3) {
-                    location = midLocations[random.nextInt(midLocations.length)];
+                    location = MID_LOCATIONS[random.nextInt(MID_LOCATIONS.length)];
                 } else {
-                    location = lateLocations[random.nextInt(lateLocations.length)];
+                    location = LATE_LOCATIONS[random.nextInt(LATE_LOCATIONS.length)];
                 }
-                yield String.format(
-                        "A %s in a %s dungeon. Name and describe this room.",
-                        location, roomTheme);
+                yield entityPrompt(roomTheme, "Room", "a " + location + "." + contents);
             }
         };
     }
 
+    // Shared text first and the entity-specific part last, so every content prompt of a world starts
+    // with the same bytes and a warm llama-server slot only has to prefill the short tail
+    private static String entityPrompt(String theme, String category, String details) {
+        return "Name and describe one thing from a " + theme + " dungeon. " + category + ": " + details;
+    }
+
     private RoomContent generateFallbackContent(RoomType type, int roomIndex) {
         return switch (type) {
             case SAFE -> new RoomContent(
@@ -411,29 +818,16 @@ public class MapBuilder {
         };
     }
 
-    private String chooseRandomTheme() {
-        String[] themes = {
-                "Ancient Ruins",
-                "Dark Forest",
-                "Abandoned Castle",
-                "Underground Caverns",
-                "Haunted Catacombs"
-        };
-        return themes[(int) (Math.random() * themes.length)];
-    }
-
-    private String extractJsonField(String json, String fieldName) {
-        if (json == null) return null;
+    static final List<String> THEMES = List.of(
+            "Ancient Ruins",
+            "Dark Forest",
+            "Abandoned Castle",
+            "Underground Caverns",
+            "Haunted Catacombs"
+    );
 
-        String searchPattern = "\"" + fieldName + "\"\\s*:\\s*\"([^\"]+)\"";
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(searchPattern);
-        java.util.regex.Matcher matcher = pattern.matcher(json);
-
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-
-        return null;
+    private String chooseRandomTheme() {
+        return THEMES.get((int) (Math.random() * THEMES.size()));
     }
 
     private void assignRoomTypes(List<Room> rooms) {
@@ -0,0 +1,435 @@
+package controller;
+
+import model.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for world generation content fan-out.
+ * Uses a slow stub LLM so overlapping calls are observable.
+ *
+ * Run: java -cp bin controller.MapBuilderTest
+ */
+public class MapBuilderTest {
+
+    static int passed = 0;
+    static int failed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== MapBuilder Generation Tests ===\n");
+
+        testConcurrencyStaysWithinSlotCap();
+        testEveryRoomIsNamed();
+        testEntitiesAreBatched();
+        testFailingLLMFallsBack();
+        testDuplicatePromptsAreAskedOnce();
+        testDiversifyTellsCopiesApart();
+        testSharedNamesStayDistinctInARoom();
+        testRoomsAreNamedWithTheirContents();
+        testBudgetStartsOnTimeThenUpgrades();
+        testLazyWorldNamesRoomsOnApproach();
+        testEntryWaitFollowsTheTier();
+        testLocalNamesWinPastDeadline();
+        testUnusableAnswersAreNamedLocally();
+        testLibraryModeMakesNoLLMCalls();
+
+        System.out.println("\n=== Results: " + passed + " passed, " + failed + " failed ===");
+        if (failed > 0) System.exit(1);
+    }
+
+    static void testConcurrencyStaysWithinSlotCap() {
+        SlowLLMService llm = new SlowLLMService(40);
+        MapBuilder builder = new MapBuilder(llm, 3);
+        builder.generateMap(20);
+
+        assertTest("LLM calls overlap (peak " + llm.peak.get() + ")", llm.peak.get() > 1);
+        assertTest("LLM calls never exceed the slot cap", llm.peak.get() <= 3);
+    }
+
+    static void testEveryRoomIsNamed() {
+        MapBuilder builder = new MapBuilder(new SlowLLMService(5), 4);
+        builder.generateMap(8);
+
+        boolean allNamed = builder.getWorldMap().values().stream()
+                .allMatch(r -> r.getName().equals("Stub Name") && r.getDesc().equals("Stub description."));
+        assertTest("Every room receives its generated content", allNamed);
+
+        boolean monstersNamed = builder.getWorldMap().values().stream()
+                .filter(Room::hasMonster)
+                .allMatch(r -> r.getMonster().getName().equals("Stub Name"));
+        assertTest("Every monster receives its generated content", monstersNamed);
+    }
+
+    static void testEntitiesAreBatched() {
+        SlowLLMService llm = new SlowLLMService(1);
+        MapBuilder builder = new MapBuilder(llm, 4);
+        builder.generateMap(20);
+
+        // 20 rooms alone would be 20 calls one at a time; theme + batches of 10 is far fewer
+        assertTest("Entities share requests (" + llm.calls.get() + " calls)", llm.calls.get() <= 10);
+    }
+
+    static void testFailingLLMFallsBack() {
+        MapBuilder builder = new MapBuilder(new FailingLLMService(), 4);
+        Room spawn = builder.generateMap(6);
+
+        assertTest("Spawn room uses fallback content", spawn.getName().equals("Safe Haven"));
+        boolean itemsPlaced = spawn.getItems().size() >= 2;
+        assertTest("Spawn room still receives starting gear", itemsPlaced);
+    }
+
+    static void testDuplicatePromptsAreAskedOnce() {
+        SlowLLMService llm = new SlowLLMService(1);
+        MapBuilder builder = new MapBuilder(llm, 4, false);
+        builder.generateMap(20);
+
+        // Every monster and item with the same prompt shares one spec, so fewer specs than entities
+        int entities = 0;
+        for (Room room : builder.getWorldMap().values()) {
+            entities += 1 + room.getItems().size() + (room.hasMonster() ? 1 : 0);
+        }
+        assertTest("Duplicate prompts are sent once (" + llm.specs.get() + " specs for " + entities + " entities)",
+                llm.specs.get() < entities);
+    }
+
+    static void testDiversifyTellsCopiesApart() {
+        MapBuilder builder = new MapBuilder(new SlowLLMService(1), 4, true);
+        builder.generateMap(20);
+
+        List<String> monsterNames = builder.getWorldMap().values().stream()
+                .filter(Room::hasMonster)
+                .map(r -> r.getMonster().getName())
+                .toList();
+        assertTest("Copies get distinct names", monsterNames.stream().anyMatch(name -> !name.equals("Stub Name"))
+                && monsterNames.stream().allMatch(name -> name.endsWith("Stub Name")));
+        boolean roomsPlain = builder.getWorldMap().values().stream()
+                .allMatch(r -> r.getName().equals("Stub Name"));
+        assertTest("Rooms are never shared, so never renamed", roomsPlain);
+    }
+
+    static void testSharedNamesStayDistinctInARoom() {
+        boolean distinct = true;
+        boolean shared = false;
+        for (int world = 0; world < 5; world++) {
+            MapBuilder builder = new MapBuilder(new PromptNamingLLMService(), 4, false);
+            builder.generateMap(30);
+            Set<String> elsewhere = new HashSet<>();
+            for (Room room : builder.getWorldMap().values()) {
+                List<String> names = room.getItems().stream().map(Item::getName).toList();
+                distinct &= new HashSet<>(names).size() == names.size();
+                for (String name : new HashSet<>(names)) {
+                    shared |= !elsewhere.add(name);
+                }
+            }
+        }
+        assertTest("Items in one room never share a name", distinct);
+        assertTest("Rooms still share answers to the same prompt", shared);
+    }
+
+    static void testRoomsAreNamedWithTheirContents() {
+        SlowLLMService llm = new SlowLLMService(1);
+        MapBuilder builder = new MapBuilder(llm, 4, false);
+        builder.generateMap(20);
+
+        // Each room's entities sit together in one batch, led by the room itself
+        Map<Integer, Integer> batchOfRoom = new HashMap<>();
+        boolean whole = true;
+        boolean roomFirst = true;
+        for (int b = 0; b < llm.batches.size(); b++) {
+            List<ContentSpec> batch = llm.batches.get(b);
+            for (int i = 0; i < batch.size(); i++) {
+                ContentSpec spec = batch.get(i);
+                Integer earlier = batchOfRoom.putIfAbsent(spec.group(), b);
+                whole &= earlier == null || earlier == b;
+                boolean startsGroup = i == 0 || batch.get(i - 1).group() != spec.group();
+                roomFirst &= startsGroup == spec.kind().equals("room");
+            }
+        }
+        assertTest("No room is split across requests", whole && !llm.batches.isEmpty());
+        assertTest("Each room leads its own group", roomFirst);
+
+        Room boss = builder.getWorldMap().values().stream()
+                .filter(r -> r.getRoomtype() == RoomType.BOSS).findFirst().orElseThrow();
+        boolean bossPromptNamesMonster = llm.batches.stream().flatMap(List::stream)
+                .anyMatch(spec -> spec.group() == boss.getId() && spec.kind().equals("room")
+                        && spec.prompt().contains(" monster") && spec.prompt().contains("a weapon"));
+        assertTest("Room prompt lists what was placed in it", bossPromptNamesMonster);
+    }
+
+    static void testBudgetStartsOnTimeThenUpgrades() {
+        MapBuilder builder = new MapBuilder(new SlowLLMService(200), 2, false);
+        long start = System.nanoTime();
+        Room spawn = builder.generateMap(12, Duration.ofMillis(100));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        List<Room> others = builder.getWorldMap().values().stream().filter(r -> r != spawn).toList();
+        assertTest("Map is ready within the budget (" + elapsedMillis + " ms)", elapsedMillis < 1000);
+        assertTest("Late rooms start with fallback names",
+                others.stream().noneMatch(r -> r.getName().equals("Stub Name")));
+
+        Room seen = others.getFirst();
+        String seenName = seen.getName();
+        seen.setVisited(true);
+        List<Room> unseen = others.subList(1, others.size());
+        long giveUp = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < giveUp
+                && !unseen.stream().allMatch(r -> r.getName().equals("Stub Name"))) {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        assertTest("Unvisited rooms are upgraded in the background",
+                unseen.stream().allMatch(r -> r.getName().equals("Stub Name") && r.getDesc().equals("Stub description.")));
+        assertTest("Upgraded rooms' monsters and items are renamed too", unseen.stream()
+                .allMatch(r -> (!r.hasMonster() || r.getMonster().getName().equals("Stub Name"))
+                        && r.getItems().stream().allMatch(item -> item.getName().endsWith("Stub Name")))); // copies in one room get an epithet
+        assertTest("Visited and spawn rooms keep the names already shown",
+                seen.getName().equals(seenName) && spawn.getName().equals("Safe Haven"));
+    }
+
+    static void testLazyWorldNamesRoomsOnApproach() {
+        SlowLLMService llm = new SlowLLMService(20);
+        MapBuilder builder = new MapBuilder(llm, 4, false, true);
+        Room spawn = builder.generateMap(20);
+
+        // A room two steps from spawn, reached through next
+        Room next = null;
+        Room far = null;
+        for (Room neighbour : spawn.getExits().values()) {
+            for (Room beyond : neighbour.getExits().values()) {
+                if (beyond != spawn && !spawn.getExits().containsValue(beyond)) {
+                    next = neighbour;
+                    far = beyond;
+                }
+            }
+        }
+        if (far == null) {
+            assertTest("Map has a room two steps from spawn", false);
+            return;
+        }
+        int farId = far.getId();
+        assertTest("Spawn room is named before the game starts", spawn.getName().equals("Stub Name"));
+        assertTest("Rooms out of reach are not asked for", !far.getName().equals("Stub Name")
+                && llm.batches.stream().flatMap(List::stream).noneMatch(spec -> spec.group() == farId));
+
+        builder.prepareRoom(next);
+        assertTest("Room next door is named on entry", next.getName().equals("Stub Name")
+                && (!next.hasMonster() || next.getMonster().getName().equals("Stub Name")));
+        builder.prepareRoom(far);
+        assertTest("Rooms are named one step ahead of the player", far.getName().equals("Stub Name")
+                && far.getItems().stream().allMatch(item -> item.getName().equals("Stub Name")));
+    }
+
+    static void testEntryWaitFollowsTheTier() {
+        TieredLLMService llm = new TieredLLMService(600);
+        System.setProperty("javarpg.worldgen.entryWait", "200");
+        MapBuilder builder;
+        try {
+            builder = new MapBuilder(llm, 4, false, true);
+        } finally {
+            System.clearProperty("javarpg.worldgen.entryWait");
+        }
+        Room spawn = builder.generateMap(20);
+        List<Room> rooms = new ArrayList<>(builder.getWorldMap().values());
+        rooms.removeIf(room -> room == spawn || spawn.getExits().containsValue(room));
+        if (rooms.size() < 3) {
+            assertTest("Map has three rooms away from spawn", false);
+            return;
+        }
+
+        long start = System.nanoTime();
+        builder.prepareRoom(rooms.get(0));
+        long fullMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTest("Entry waits as long as configured (" + fullMillis + " ms)", fullMillis >= 150 && fullMillis < 600);
+
+        llm.tier = DegradationTier.MINIMAL;
+        start = System.nanoTime();
+        builder.prepareRoom(rooms.get(1));
+        long minimalMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTest("A backed-up LLM is not waited for (" + minimalMillis + " ms)", minimalMillis < 100);
+
+        builder.shutdown();
+        int calls = llm.calls.get();
+        builder.prepareRoom(rooms.get(2));
+        assertTest("Nothing is asked for after shutdown", llm.calls.get() == calls);
+    }
+
+    static void testLocalNamesWinPastDeadline() {
+        System.setProperty("javarpg.worldgen.localAfter", "50");
+        MapBuilder builder;
+        try {
+            builder = new MapBuilder(new SlowLLMService(400), 4, false, false);
+        } finally {
+            System.clearProperty("javarpg.worldgen.localAfter");
+        }
+        long start = System.nanoTime();
+        builder.generateMap(10);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTest("Slow LLM does not hold up the map (" + elapsedMillis + " ms)", elapsedMillis < 400);
+        boolean local = builder.getWorldMap().values().stream()
+                .allMatch(r -> !r.getName().equals("Stub Name") && !r.getName().startsWith("Chamber ")
+                        && (!r.hasMonster() || !r.getMonster().getName().equals("Stub Name")));
+        assertTest("Rooms and monsters are named locally, not from the fixed fallbacks", local);
+    }
+
+    static void testUnusableAnswersAreNamedLocally() {
+        System.setProperty("javarpg.worldgen.localAfter", "10000");
+        MapBuilder builder;
+        try {
+            builder = new MapBuilder(new UnusableLLMService(), 4, false, false);
+        } finally {
+            System.clearProperty("javarpg.worldgen.localAfter");
+        }
+        builder.generateMap(10);
+        boolean local = builder.getWorldMap().values().stream().noneMatch(r -> r.getName().startsWith("Chamber "));
+        assertTest("Entities the batch could not name are named locally, not from the fixed fallbacks", local);
+    }
+
+    static void testLibraryModeMakesNoLLMCalls() {
+        ContentLibrary library;
+        try {
+            java.nio.file.Path file = ContentLibraryTest.newFile();
+            ContentLibrary writer = ContentLibrary.openForWriting(file, 1024 * 1024);
+            new LibraryBuilder(new ContentLibraryTest.NumberingLLMService(), writer, 4).build(List.of("Sunken Temple"), 3);
+            writer.flush();
+            library = ContentLibrary.open(file);
+        } catch (java.io.IOException e) {
+            assertTest("Library can be written and read back", false);
+            return;
+        }
+
+        SlowLLMService llm = new SlowLLMService(1);
+        MapBuilder builder = new MapBuilder(llm, 4, false, false);
+        builder.setLibrary(library);
+        builder.generateMap(20);
+
+        assertTest("Library world asks the LLM nothing", llm.calls.get() == 0);
+        assertTest("Theme comes from the library", "Sunken Temple".equals(builder.getDungeonTheme()));
+        boolean fromLibrary = builder.getWorldMap().values().stream()
+                .allMatch(r -> r.getName().startsWith("room ")
+                        && (!r.hasMonster() || r.getMonster().getName().startsWith("monster "))
+                        && r.getItems().stream().allMatch(item -> item.getName().matches("(weapon|potion|treasure|key) \\d+")));
+        assertTest("Rooms, monsters and items are library entries", fromLibrary);
+    }
+
+    // === Stub LLM that sleeps and tracks how many calls overlap ===
+    static class SlowLLMService extends FailingLLMService {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger specs = new AtomicInteger();
+        final List<List<ContentSpec>> batches = Collections.synchronizedList(new ArrayList<>());
+        private final long delayMillis;
+
+        SlowLLMService(long delayMillis) {
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public String generateText(String s, String u) {
+            simulateLatency();
+            specs.incrementAndGet();
+            return "{\"name\":\"Stub Name\",\"description\":\"Stub description.\",\"theme\":\"Stub Theme\"}";
+        }
+
+        @Override
+        public List<String[]> generateContentBatch(List<ContentSpec> specs) {
+            simulateLatency();
+            this.specs.addAndGet(specs.size());
+            batches.add(specs);
+            List<String[]> results = new ArrayList<>();
+            for (ContentSpec ignored : specs) {
+                results.add(new String[]{"Stub Name", "Stub description."});
+            }
+            return results;
+        }
+
+        private void simulateLatency() {
+            calls.incrementAndGet();
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    // === Stub LLM that answers every batch, but with nothing usable ===
+    static class UnusableLLMService extends SlowLLMService {
+        UnusableLLMService() {
+            super(0);
+        }
+
+        @Override
+        public List<String[]> generateContentBatch(List<ContentSpec> specs) {
+            return new ArrayList<>(Collections.nCopies(specs.size(), (String[]) null));
+        }
+    }
+
+    // === Stub LLM whose degradation tier the test sets ===
+    static class TieredLLMService extends SlowLLMService {
+        volatile DegradationTier tier = DegradationTier.FULL;
+
+        TieredLLMService(long delayMillis) {
+            super(delayMillis);
+        }
+
+        @Override
+        public DegradationTier getDegradationTier() {
+            return tier;
+        }
+    }
+
+    // === Stub LLM whose answer depends only on the prompt ===
+    static class PromptNamingLLMService extends SlowLLMService {
+        PromptNamingLLMService() {
+            super(0);
+        }
+
+        @Override
+        public List<String[]> generateContentBatch(List<ContentSpec> specs) {
+            List<String[]> results = new ArrayList<>();
+            for (ContentSpec spec : specs) {
+                results.add(new String[]{spec.kind() + " " + Integer.toHexString(spec.prompt().hashCode()), "Stub description."});
+            }
+            return results;
+        }
+    }
+
+    // === Stub LLM whose every call blows up ===
+    static class FailingLLMService implements LLMService {
+        public String generateChallenge(ChallengeType t, ChallengeDifficulty d, String ctx) { return null; }
+        public String generateChallenge(String p) { return null; }
+        public String evaluateResponse(String r, String e, String c) { return null; }
+        public String generateHint(String p, String a, int l) { return null; }
+        public Map<String, String> parseJsonResponse(String j) { return new HashMap<>(); }
+        public String generateText(String s, String u) { throw new IllegalStateException("LLM down"); }
+        public List<String[]> generateContentBatch(List<ContentSpec> s) { throw new IllegalStateException("LLM down"); }
+        public boolean isAvailable() { return false; }
+    }
+
+    static void assertTest(String name, boolean condition) {
+        if (condition) {
+            System.out.println("  PASS: " + name);
+            passed++;
+        } else {
+            System.out.println("  FAIL: " + name);
+            failed++;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package controller;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts LLM replies per response schema and how many of them could not be used,
+ * so the effect of constrained decoding shows up as a failure rate rather than a hunch.
+ * Replies only usable after JsonRepair are counted too: each is an inference saved.
+ */
+public class ParseStats {
+    private final Map<String, LongAdder> replies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> repairs = new ConcurrentHashMap<>();
+
+    public void record(String schema, boolean usable) {
+        replies.computeIfAbsent(schema, key -> new LongAdder()).increment();
+        if (!usable) {
+            failures.computeIfAbsent(schema, key -> new LongAdder()).increment();
+        }
+    }
+
+    // A usable reply that would have been a failure without local repair
+    public void recordRepair(String schema) {
+        repairs.computeIfAbsent(schema, key -> new LongAdder()).increment();
+    }
+
+    public long getReplies(String schema) {
+        LongAdder count = replies.get(schema);
+        return count == null ? 0 : count.sum();
+    }
+
+    public long getFailures(String schema) {
+        LongAdder count = failures.get(schema);
+        return count == null ? 0 : count.sum();
+    }
+
+    public long getRepairs(String schema) {
+        LongAdder count = repairs.get(schema);
+        return count == null ? 0 : count.sum();
+    }
+
+    // Across all schemas
+    public long getRepairs() {
+        long total = 0;
+        for (LongAdder count : repairs.values()) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    // 0 until the schema has seen a reply
+    public double getFailureRate(String schema) {
+        long total = getReplies(schema);
+        return total == 0 ? 0 : (double) getFailures(schema) / total;
+    }
+
+    public Set<String> getSchemas() {
+        return Set.copyOf(replies.keySet());
+    }
+}
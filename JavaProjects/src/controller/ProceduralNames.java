@@ -0,0 +1,120 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Names and descriptions made up locally in microseconds, learned from the fallback pools and
+ * from what the LLM has answered before. A name puts the leading words of one known name in
+ * front of the last word of another ("Rusty" + "Cleaver"); a description is a walk through a
+ * word-level Markov chain over the known descriptions. MapBuilder races it against the LLM.
+ */
+public class ProceduralNames {
+    private static final String START = "";
+    private static final String END = "\u0000";
+    private static final int MAX_DESCRIPTION = 100;
+    private static final int MAX_WORDS = 30;
+    private static final int ATTEMPTS = 8;
+
+    private static final class Corpus {
+        final Set<String> names = new HashSet<>();
+        final List<String> prefixes = new ArrayList<>(); // all but the last word; "" for one-word names
+        final List<String> heads = new ArrayList<>();
+        final Set<String> descriptions = new HashSet<>();
+        final List<String> descriptionList = new ArrayList<>();
+        final Map<String, List<String>> chain = new HashMap<>(); // two words -> words seen after them
+    }
+
+    private final Map<String, Corpus> corpora = new HashMap<>();
+    private final Random random;
+
+    public ProceduralNames() {
+        this(new Random());
+    }
+
+    public ProceduralNames(Random random) {
+        this.random = random;
+    }
+
+    // description may be null when only a name is known
+    public synchronized void train(String kind, String name, String description) {
+        if (name == null || name.isBlank()) {
+            return;
+        }
+        Corpus corpus = corpora.computeIfAbsent(kind, key -> new Corpus());
+        String trimmed = name.trim();
+        if (corpus.names.add(trimmed)) {
+            int space = trimmed.lastIndexOf(' ');
+            corpus.prefixes.add(space == -1 ? "" : trimmed.substring(0, space));
+            corpus.heads.add(trimmed.substring(space + 1));
+        }
+        if (description != null && !description.isBlank() && corpus.descriptions.add(description.trim())) {
+            corpus.descriptionList.add(description.trim());
+            String previous = START;
+            String current = START;
+            for (String word : description.trim().split("\\s+")) {
+                corpus.chain.computeIfAbsent(previous + ' ' + current, key -> new ArrayList<>()).add(word);
+                previous = current;
+                current = word;
+            }
+            corpus.chain.computeIfAbsent(previous + ' ' + current, key -> new ArrayList<>()).add(END);
+        }
+    }
+
+    // A made-up {name, description}, or null if no description of this kind has been seen yet
+    public synchronized String[] generate(String kind) {
+        Corpus corpus = corpora.get(kind);
+        if (corpus == null || corpus.descriptionList.isEmpty()) {
+            return null;
+        }
+        return new String[]{name(corpus), description(corpus)};
+    }
+
+    // Prefers a combination that is not already a known name
+    private String name(Corpus corpus) {
+        String candidate = null;
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            String prefix = pick(corpus.prefixes);
+            String head = pick(corpus.heads);
+            if (prefix.equals(head) || prefix.endsWith(" " + head)) {
+                continue; // "Throne Throne"
+            }
+            candidate = prefix.isEmpty() ? head : prefix + " " + head;
+            if (!corpus.names.contains(candidate)) {
+                return candidate;
+            }
+        }
+        return candidate != null ? candidate : pick(new ArrayList<>(corpus.names));
+    }
+
+    private String description(Corpus corpus) {
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            StringBuilder text = new StringBuilder();
+            String previous = START;
+            String current = START;
+            for (int words = 0; words < MAX_WORDS; words++) {
+                String next = pick(corpus.chain.get(previous + ' ' + current));
+                if (next.equals(END)) {
+                    break;
+                }
+                if (!text.isEmpty()) text.append(' ');
+                text.append(next);
+                previous = current;
+                current = next;
+            }
+            if (!text.isEmpty() && text.length() <= MAX_DESCRIPTION) {
+                return text.toString();
+            }
+        }
+        return pick(corpus.descriptionList);
+    }
+
+    private String pick(List<String> options) {
+        return options.get(random.nextInt(options.size()));
+    }
+}
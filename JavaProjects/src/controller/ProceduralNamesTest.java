@@ -0,0 +1,111 @@
+package controller;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Tests for the local name generator raced against the LLM.
+ *
+ * Run: java -cp bin controller.ProceduralNamesTest
+ */
+public class ProceduralNamesTest {
+
+    static int passed = 0;
+    static int failed = 0;
+
+    static final List<String[]> MONSTERS = List.of(
+            new String[]{"Cave Rat", "A mangy rodent with yellowed fangs, hissing from the shadows."},
+            new String[]{"Stone Golem", "A hulking figure of cracked granite that grinds forward relentlessly."},
+            new String[]{"Shadow Stalker", "A wisp of living darkness that strikes from blind corners."},
+            new String[]{"Abyssal Wyrm", "A serpentine horror wreathed in black flame, radiating dread."});
+
+    public static void main(String[] args) {
+        System.out.println("=== Procedural Names Tests ===\n");
+
+        testUnknownKindGivesNull();
+        testNamesRecombineKnownWords();
+        testDescriptionsStayShort();
+        testKindsAreKeptApart();
+        testSameSeedSameOutput();
+
+        System.out.println("\n=== Results: " + passed + " passed, " + failed + " failed ===");
+        if (failed > 0) System.exit(1);
+    }
+
+    static ProceduralNames trained(Random random) {
+        ProceduralNames names = new ProceduralNames(random);
+        for (String[] monster : MONSTERS) {
+            names.train("monster", monster[0], monster[1]);
+        }
+        return names;
+    }
+
+    static void testUnknownKindGivesNull() {
+        ProceduralNames names = trained(new Random(1));
+        names.train("room", "Sealed Tomb", null);
+        assertTest("Untrained kind gives null", names.generate("weapon") == null);
+        assertTest("Names alone are not enough", names.generate("room") == null);
+    }
+
+    static void testNamesRecombineKnownWords() {
+        ProceduralNames names = trained(new Random(7));
+        Set<String> known = new HashSet<>();
+        Set<String> words = new HashSet<>();
+        for (String[] monster : MONSTERS) {
+            known.add(monster[0]);
+            words.addAll(List.of(monster[0].split(" ")));
+        }
+        boolean fromKnownWords = true;
+        boolean anyNew = false;
+        for (int i = 0; i < 50; i++) {
+            String name = names.generate("monster")[0];
+            fromKnownWords &= words.containsAll(List.of(name.split(" ")));
+            anyNew |= !known.contains(name);
+        }
+        assertTest("Names are built from known words", fromKnownWords);
+        assertTest("Names are not just the known ones", anyNew);
+    }
+
+    static void testDescriptionsStayShort() {
+        ProceduralNames names = trained(new Random(3));
+        boolean fits = true;
+        for (int i = 0; i < 50; i++) {
+            String description = names.generate("monster")[1];
+            fits &= !description.isBlank() && description.length() <= 100;
+        }
+        assertTest("Descriptions are non-empty and fit the 100-char limit", fits);
+    }
+
+    static void testKindsAreKeptApart() {
+        ProceduralNames names = trained(new Random(5));
+        names.train("potion", "Weak Tonic", "A cloudy vial of bitter restorative liquid.");
+        boolean potionOnly = true;
+        for (int i = 0; i < 20; i++) {
+            String[] potion = names.generate("potion");
+            potionOnly &= potion[0].equals("Weak Tonic") && potion[1].equals("A cloudy vial of bitter restorative liquid.");
+        }
+        assertTest("Each kind draws only on its own examples", potionOnly);
+    }
+
+    static void testSameSeedSameOutput() {
+        ProceduralNames first = trained(new Random(42));
+        ProceduralNames second = trained(new Random(42));
+        boolean same = true;
+        for (int i = 0; i < 10; i++) {
+            same &= List.of(first.generate("monster")).equals(List.of(second.generate("monster")));
+        }
+        assertTest("Same seed and examples give the same output", same);
+    }
+
+    static void assertTest(String name, boolean condition) {
+        if (condition) {
+            System.out.println("  PASS: " + name);
+            passed++;
+        } else {
+            System.out.println("  FAIL: " + name);
+            failed++;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package controller;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tokens and latency observed per generation profile, so token budgets and timeouts can be
+ * tuned from what calls actually use. A call that used its whole budget was probably cut off.
+ */
+public class ProfileStats {
+    private static final int LATENCY_WINDOW = 128;
+
+    private static final class Usage {
+        final LongAdder calls = new LongAdder();
+        final LongAdder reported = new LongAdder();
+        final LongAdder tokens = new LongAdder();
+        final LongAdder exhausted = new LongAdder();
+        final LatencyWindow latencies = new LatencyWindow(LATENCY_WINDOW);
+        volatile int maxTokens;
+    }
+
+    private final Map<LLMCallType, Usage> usage = new EnumMap<>(LLMCallType.class);
+
+    public ProfileStats() {
+        for (LLMCallType type : LLMCallType.values()) {
+            usage.put(type, new Usage());
+        }
+    }
+
+    // tokens is the completion length, or -1 when the server did not report it
+    public void record(LLMCallType type, int tokens, int budget, long latencyMillis) {
+        Usage entry = usage.get(type);
+        entry.calls.increment();
+        entry.latencies.record(latencyMillis);
+        if (tokens < 0) {
+            return;
+        }
+        entry.reported.increment();
+        entry.tokens.add(tokens);
+        if (tokens >= budget) {
+            entry.exhausted.increment();
+        }
+        if (tokens > entry.maxTokens) {
+            entry.maxTokens = tokens; // a lost race only understates a rare peak
+        }
+    }
+
+    public long getCalls(LLMCallType type) {
+        return usage.get(type).calls.sum();
+    }
+
+    // Over the calls whose token count the server reported
+    public double getAverageTokens(LLMCallType type) {
+        Usage entry = usage.get(type);
+        long reported = entry.reported.sum();
+        return reported == 0 ? 0 : (double) entry.tokens.sum() / reported;
+    }
+
+    public int getMaxTokens(LLMCallType type) {
+        return usage.get(type).maxTokens;
+    }
+
+    // Calls that ran into their token budget
+    public long getExhausted(LLMCallType type) {
+        return usage.get(type).exhausted.sum();
+    }
+
+    // -1 before the first call
+    public long p95Millis(LLMCallType type) {
+        return usage.get(type).latencies.p95Millis(1);
+    }
+}
@@ -0,0 +1,183 @@
+package controller;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes chat-completion request bodies straight to UTF-8 bytes.
+ * The fixed parts of a body (model, the handful of system prompts, trailing options per
+ * generation profile and schema) are
+ * encoded once; user prompts are escaped directly into a pooled scratch buffer, so each
+ * request costs a single copy of its bytes instead of several intermediate Strings.
+ */
+public class RequestEncoder {
+    private static final int MAX_CACHED_PROMPTS = 64;
+    private static final int POOL_SIZE = 16;
+    private static final int INITIAL_CAPACITY = 8 * 1024;
+    private static final int MAX_POOLED_CAPACITY = 256 * 1024; // don't hang on to one-off giants
+
+    private static final byte[] USER_MESSAGE = ascii("\"},{\"role\": \"user\", \"content\": \"");
+    private static final byte[] HEX = ascii("0123456789abcdef");
+
+    private final byte[] head;
+    private final double temperature;
+    private final Map<String, byte[]> encodedPrompts = new ConcurrentHashMap<>();
+
+    // A handful of profiles and fixed schemas, so a handful of tails
+    private record Tail(GenerationProfile profile, ResponseSchema schema, boolean stream) {}
+    private final Map<Tail, byte[]> tails = new ConcurrentHashMap<>();
+
+    // Callers are mostly short-lived virtual threads, so buffers are pooled rather than thread-local
+    private final BlockingQueue<Scratch> pool = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    public RequestEncoder(String model, double temperature) {
+        Scratch scratch = new Scratch(256);
+        scratch.write(ascii("{\"model\": \""));
+        scratch.writeEscaped(model);
+        scratch.write(ascii("\", \"messages\": [{\"role\": \"system\", \"content\": \""));
+        this.head = scratch.toByteArray();
+        this.temperature = temperature;
+    }
+
+    public byte[] encode(String systemPrompt, String userPrompt, boolean stream) {
+        return encode(systemPrompt, userPrompt, null, null, stream);
+    }
+
+    // Non-streaming body whose reply llama-server constrains to the schema; null means unconstrained
+    public byte[] encode(String systemPrompt, String userPrompt, ResponseSchema schema) {
+        return encode(systemPrompt, userPrompt, null, schema, false);
+    }
+
+    // With the profile's budget, stop sequences and temperature; a null profile sets only the default temperature
+    public byte[] encode(String systemPrompt, String userPrompt, GenerationProfile profile, ResponseSchema schema, boolean stream) {
+        byte[] tail = tails.computeIfAbsent(new Tail(profile, schema, stream), this::encodeTail);
+        return encode(systemPrompt, userPrompt, tail);
+    }
+
+    private byte[] encodeTail(Tail key) {
+        StringBuilder tail = new StringBuilder("\"}], ");
+        tail.append(key.profile() != null ? key.profile().toJson() : "\"temperature\": " + temperature);
+        tail.append(", \"stream\": ").append(key.stream());
+        if (key.schema() != null) {
+            tail.append(", \"json_schema\": ").append(key.schema().getJson());
+        }
+        return tail.append('}').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] encode(String systemPrompt, String userPrompt, byte[] tail) {
+        Scratch scratch = pool.poll();
+        if (scratch == null) {
+            scratch = new Scratch(INITIAL_CAPACITY);
+        }
+        try {
+            scratch.write(head);
+            scratch.write(encodedSystemPrompt(systemPrompt));
+            scratch.write(USER_MESSAGE);
+            scratch.writeEscaped(userPrompt);
+            scratch.write(tail);
+            return scratch.toByteArray();
+        } finally {
+            scratch.length = 0;
+            if (scratch.bytes.length <= MAX_POOLED_CAPACITY) {
+                pool.offer(scratch);
+            }
+        }
+    }
+
+    // System prompts come from a small fixed set, so each is escaped once and reused
+    private byte[] encodedSystemPrompt(String systemPrompt) {
+        byte[] encoded = encodedPrompts.get(systemPrompt);
+        if (encoded != null) {
+            return encoded;
+        }
+        Scratch scratch = new Scratch(systemPrompt.length() + 16);
+        scratch.writeEscaped(systemPrompt);
+        encoded = scratch.toByteArray();
+        if (encodedPrompts.size() < MAX_CACHED_PROMPTS) {
+            encodedPrompts.putIfAbsent(systemPrompt, encoded);
+        }
+        return encoded;
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static final class Scratch {
+        byte[] bytes;
+        int length;
+
+        Scratch(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        void write(byte[] fragment) {
+            ensure(fragment.length);
+            System.arraycopy(fragment, 0, bytes, length, fragment.length);
+            length += fragment.length;
+        }
+
+        // JSON string escaping and UTF-8 encoding in one pass, no intermediate Strings
+        void writeEscaped(String text) {
+            ensure(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (length + 6 > bytes.length) {
+                    ensure(6 + text.length() - i);
+                }
+                if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                    bytes[length++] = (byte) c;
+                } else if (c == '"' || c == '\\') {
+                    bytes[length++] = '\\';
+                    bytes[length++] = (byte) c;
+                } else if (c == '\n') {
+                    bytes[length++] = '\\';
+                    bytes[length++] = 'n';
+                } else if (c == '\r') {
+                    bytes[length++] = '\\';
+                    bytes[length++] = 'r';
+                } else if (c == '\t') {
+                    bytes[length++] = '\\';
+                    bytes[length++] = 't';
+                } else if (c < 0x20) {
+                    bytes[length++] = '\\';
+                    bytes[length++] = 'u';
+                    bytes[length++] = '0';
+                    bytes[length++] = '0';
+                    bytes[length++] = HEX[c >> 4];
+                    bytes[length++] = HEX[c & 0xF];
+                } else if (c < 0x800) {
+                    bytes[length++] = (byte) (0xC0 | (c >> 6));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                        && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                    bytes[length++] = (byte) (0xF0 | (codePoint >> 18));
+                    bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    bytes[length++] = '?'; // unpaired surrogate, same as String.getBytes
+                } else {
+                    bytes[length++] = (byte) (0xE0 | (c >> 12));
+                    bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package controller;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tests for the byte-level chat request encoder.
+ *
+ * Run: java -cp bin controller.RequestEncoderTest
+ */
+public class RequestEncoderTest {
+
+    static int passed = 0;
+    static int failed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== Request Encoder Tests ===\n");
+
+        testMatchesFormattedBody();
+        testEscapesRoundTrip();
+        testLargePromptsGrowBuffer();
+        testSchemaConstrainsReply();
+        testProfileSetsOptions();
+
+        System.out.println("\n=== Results: " + passed + " passed, " + failed + " failed ===");
+        if (failed > 0) System.exit(1);
+    }
+
+    static void testMatchesFormattedBody() {
+        RequestEncoder encoder = new RequestEncoder("qwen", 0.7);
+        String body = new String(encoder.encode("Be brief.", "Name a \"sword\"\nplease", false), StandardCharsets.UTF_8);
+        String expected = "{\"model\": \"qwen\", \"messages\": ["
+                + "{\"role\": \"system\", \"content\": \"Be brief.\"},"
+                + "{\"role\": \"user\", \"content\": \"Name a \\\"sword\\\"\\nplease\"}"
+                + "], \"temperature\": 0.7, \"stream\": false}";
+        assertTest("Body matches the previous String.format layout", expected.equals(body));
+
+        String streamed = new String(encoder.encode("Be brief.", "x", true), StandardCharsets.UTF_8);
+        assertTest("Stream flag is set", streamed.endsWith("\"stream\": true}"));
+    }
+
+    static void testEscapesRoundTrip() {
+        RequestEncoder encoder = new RequestEncoder("m", 0.7);
+        String prompt = "Tab\there, bell\u0007, back\\slash, caf\u00e9, \u2603, dragon \uD83D\uDC09";
+        String body = new String(encoder.encode("sys", prompt, false), StandardCharsets.UTF_8);
+        String[] fields = JsonReader.readFields(body, "model", "temperature");
+        assertTest("Body stays parseable", "m".equals(fields[0]) && "0.7".equals(fields[1]));
+
+        // The user message is the second "content"; cut the system one away first
+        String user = JsonReader.readField(body.substring(body.indexOf("{\"role\": \"user\"")), "content");
+        assertTest("Control chars, non-ASCII and surrogate pairs survive", prompt.equals(user));
+    }
+
+    static void testSchemaConstrainsReply() {
+        RequestEncoder encoder = new RequestEncoder("m", 0.7);
+        String body = new String(encoder.encode("sys", "Name a rat", ResponseSchema.CONTENT), StandardCharsets.UTF_8);
+        String schema = JsonReader.readField(body, "json_schema");
+        assertTest("Schema rides along as json_schema", ResponseSchema.CONTENT.getJson().equals(schema)
+                && "false".equals(JsonReader.readField(body, "stream")));
+
+        String plain = new String(encoder.encode("sys", "Name a rat", (ResponseSchema) null), StandardCharsets.UTF_8);
+        assertTest("No schema leaves the body unconstrained",
+                plain.equals(new String(encoder.encode("sys", "Name a rat", false), StandardCharsets.UTF_8)));
+    }
+
+    static void testProfileSetsOptions() {
+        RequestEncoder encoder = new RequestEncoder("m", 0.7);
+        GenerationProfile profile = GenerationProfile.defaultFor(LLMCallType.EVALUATION);
+        String body = new String(encoder.encode("sys", "Judge", profile, ResponseSchema.EVALUATION, false), StandardCharsets.UTF_8);
+        String[] fields = JsonReader.readFields(body, "temperature", "max_tokens", "json_schema");
+        assertTest("Profile budget and temperature replace the defaults",
+                "0.2".equals(fields[0]) && "200".equals(fields[1]) && ResponseSchema.EVALUATION.getJson().equals(fields[2]));
+        assertTest("Body still ends in the closing brace the slot fields replace", body.endsWith("}"));
+    }
+
+    static void testLargePromptsGrowBuffer() {
+        RequestEncoder encoder = new RequestEncoder("m", 0.7);
+        String prompt = "\"".repeat(20_000);
+        byte[] first = encoder.encode("sys", prompt, false);
+        byte[] second = encoder.encode("sys", "short", false);
+        assertTest("Fully escaped large prompt fits", first.length > 40_000);
+        assertTest("Reused buffer leaves no stale bytes",
+                new String(second, StandardCharsets.UTF_8).endsWith("\"short\"}], \"temperature\": 0.7, \"stream\": false}"));
+    }
+
+    static void assertTest(String name, boolean condition) {
+        if (condition) {
+            System.out.println("  PASS: " + name);
+            passed++;
+        } else {
+            System.out.println("  FAIL: " + name);
+            failed++;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package controller;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JSON schema an LLM reply must follow, sent as llama-server's json_schema field.
+ * The server turns it into a grammar, so the model cannot wander into prose and stops
+ * as soon as the closing bracket is written. requiredKeys is what a reply needs to be usable.
+ */
+public final class ResponseSchema {
+    private static final String NAMED_ENTITY = "{\"type\": \"object\", \"properties\": {"
+            + "\"name\": {\"type\": \"string\", \"maxLength\": 40}, "
+            + "\"description\": {\"type\": \"string\", \"maxLength\": 120}}, "
+            + "\"required\": [\"name\", \"description\"], \"additionalProperties\": false}";
+
+    // Room, monster and item content all share one shape
+    public static final ResponseSchema CONTENT = new ResponseSchema("content", NAMED_ENTITY, "name", "description");
+
+    public static final ResponseSchema THEME = new ResponseSchema("theme", "{\"type\": \"object\", \"properties\": {"
+            + "\"theme\": {\"type\": \"string\", \"maxLength\": 40}, "
+            + "\"atmosphere\": {\"type\": \"string\", \"maxLength\": 60}, "
+            + "\"primaryDanger\": {\"type\": \"string\", \"maxLength\": 40}}, "
+            + "\"required\": [\"theme\", \"atmosphere\", \"primaryDanger\"], \"additionalProperties\": false}",
+            "theme");
+
+    public static final ResponseSchema CHALLENGE = new ResponseSchema("challenge", "{\"type\": \"object\", \"properties\": {"
+            + "\"prompt\": {\"type\": \"string\"}, "
+            + "\"desc\": {\"type\": \"string\"}, "
+            + "\"hint1\": {\"type\": \"string\"}, "
+            + "\"hint2\": {\"type\": \"string\"}, "
+            + "\"hint3\": {\"type\": \"string\"}, "
+            + "\"expectedAnswerPattern\": {\"type\": \"string\"}, "
+            + "\"correctAnswer\": {\"type\": \"string\"}, "
+            + "\"alternateAnswers\": {\"type\": \"array\", \"items\": {\"type\": \"string\"}, \"maxItems\": 5}}, "
+            + "\"required\": [\"prompt\", \"desc\", \"hint1\", \"hint2\", \"hint3\", \"expectedAnswerPattern\"], "
+            + "\"additionalProperties\": false}",
+            "prompt", "expectedAnswerPattern");
+
+    public static final ResponseSchema EVALUATION = new ResponseSchema("evaluation", "{\"type\": \"object\", \"properties\": {"
+            + "\"isCorrect\": {\"type\": \"boolean\"}, "
+            + "\"confidence\": {\"type\": \"number\"}, "
+            + "\"reasoning\": {\"type\": \"string\", \"maxLength\": 200}, "
+            + "\"effectiveness\": {\"enum\": [\"FULL\", \"PARTIAL\", \"NONE\"]}}, "
+            + "\"required\": [\"isCorrect\", \"confidence\", \"reasoning\", \"effectiveness\"], \"additionalProperties\": false}",
+            "isCorrect", "effectiveness");
+
+    private static final Map<Integer, ResponseSchema> CONTENT_BATCHES = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final String json;
+    private final String[] requiredKeys;
+
+    private ResponseSchema(String name, String json, String... requiredKeys) {
+        this.name = name;
+        this.json = json;
+        this.requiredKeys = requiredKeys;
+    }
+
+    // Exactly one entity per spec; one instance per size so its encoding is reused
+    public static ResponseSchema contentBatch(int size) {
+        return CONTENT_BATCHES.computeIfAbsent(size, n -> new ResponseSchema("content-batch",
+                "{\"type\": \"array\", \"items\": " + NAMED_ENTITY + ", \"minItems\": " + n + ", \"maxItems\": " + n + "}",
+                "name", "description"));
+    }
+
+    // Whether every required key made it into the reply (for arrays, into the first element)
+    public boolean isSatisfiedBy(String reply) {
+        for (String value : JsonReader.readFields(reply, requiredKeys)) {
+            if (value == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getJson() {
+        return json;
+    }
+}
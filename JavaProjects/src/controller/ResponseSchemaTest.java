@@ -0,0 +1,87 @@
+package controller;
+
+/**
+ * Tests for the JSON schemas sent with constrained LLM calls and the parse failure counts.
+ *
+ * Run: java -cp bin controller.ResponseSchemaTest
+ */
+public class ResponseSchemaTest {
+
+    static int passed = 0;
+    static int failed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== Response Schema Tests ===\n");
+
+        testSchemasAreWellFormed();
+        testRequiredKeysDecideUsable();
+        testBatchSchemaPinsSize();
+        testFailureRate();
+
+        System.out.println("\n=== Results: " + passed + " passed, " + failed + " failed ===");
+        if (failed > 0) System.exit(1);
+    }
+
+    static void testSchemasAreWellFormed() {
+        boolean allObjects = true;
+        for (ResponseSchema schema : new ResponseSchema[] {ResponseSchema.CONTENT, ResponseSchema.THEME,
+                ResponseSchema.CHALLENGE, ResponseSchema.EVALUATION, ResponseSchema.contentBatch(3)}) {
+            String[] fields = JsonReader.readFields(schema.getJson(), "type", "required");
+            allObjects &= fields[0] != null && fields[1] != null && balanced(schema.getJson());
+        }
+        assertTest("Every schema is balanced JSON with a type and required keys", allObjects);
+    }
+
+    static void testRequiredKeysDecideUsable() {
+        assertTest("Complete content is usable",
+                ResponseSchema.CONTENT.isSatisfiedBy("{\"name\": \"Cave Rat\", \"description\": \"Small.\"}"));
+        assertTest("Prose around the JSON is still usable",
+                ResponseSchema.CONTENT.isSatisfiedBy("Sure! {\"name\": \"Cave Rat\", \"description\": \"Small.\"} Enjoy."));
+        assertTest("Missing key is a failure",
+                !ResponseSchema.EVALUATION.isSatisfiedBy("{\"isCorrect\": true, \"confidence\": 0.9}"));
+        assertTest("Prose alone is a failure", !ResponseSchema.CHALLENGE.isSatisfiedBy("Here is a riddle for you."));
+    }
+
+    static void testBatchSchemaPinsSize() {
+        String json = ResponseSchema.contentBatch(4).getJson();
+        assertTest("Batch schema asks for exactly N items",
+                "4".equals(JsonReader.readField(json, "minItems")) && "4".equals(JsonReader.readField(json, "maxItems")));
+        assertTest("Batch schemas are reused per size", ResponseSchema.contentBatch(4) == ResponseSchema.contentBatch(4));
+    }
+
+    static void testFailureRate() {
+        ParseStats stats = new ParseStats();
+        assertTest("No replies means no failures", stats.getFailureRate("content") == 0);
+        stats.record("content", true);
+        stats.record("content", true);
+        stats.record("content", false);
+        stats.record("content", true);
+        assertTest("Failure rate counts unusable replies", stats.getFailureRate("content") == 0.25
+                && stats.getReplies("content") == 4 && stats.getFailures("content") == 1);
+
+        stats.recordRepair("content");
+        stats.recordRepair("evaluation");
+        assertTest("Repairs are counted per schema and in total",
+                stats.getRepairs("content") == 1 && stats.getRepairs("theme") == 0 && stats.getRepairs() == 2);
+    }
+
+    static boolean balanced(String json) {
+        int depth = 0;
+        for (char c : json.toCharArray()) {
+            if (c == '{' || c == '[') depth++;
+            if (c == '}' || c == ']') depth--;
+            if (depth < 0) return false;
+        }
+        return depth == 0;
+    }
+
+    static void assertTest(String name, boolean condition) {
+        if (condition) {
+            System.out.println("  PASS: " + name);
+            passed++;
+        } else {
+            System.out.println("  FAIL: " + name);
+            failed++;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package controller;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Collapses identical concurrent calls into one.
+ * The first caller for a key starts the work; callers arriving while it runs get their own
+ * future for the same result. Cancelling one of those futures only drops that caller; the
+ * work itself is cancelled once every caller has let go.
+ */
+public class SingleFlight<K, V> {
+    private static final class Flight<V> {
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        CompletableFuture<V> work;
+        int callers;
+        boolean abandoned; // every caller let go before work was assigned
+    }
+
+    private final Map<K, Flight<V>> flights = new HashMap<>();
+    private final AtomicLong joined = new AtomicLong();
+
+    public CompletableFuture<V> run(K key, Supplier<CompletableFuture<V>> work) {
+        Flight<V> flight;
+        boolean first;
+        synchronized (flights) {
+            flight = flights.get(key);
+            first = flight == null;
+            if (first) {
+                flight = new Flight<>();
+                flights.put(key, flight);
+            }
+            flight.callers++;
+        }
+
+        if (first) {
+            Flight<V> started = flight;
+            CompletableFuture<V> call = work.get();
+            boolean abandoned;
+            synchronized (flights) {
+                started.work = call;
+                abandoned = started.abandoned;
+            }
+            if (abandoned) {
+                call.cancel(false);
+            }
+            call.whenComplete((value, error) -> {
+                synchronized (flights) {
+                    flights.remove(key, started);
+                }
+                if (error != null) {
+                    started.result.completeExceptionally(error);
+                } else {
+                    started.result.complete(value);
+                }
+            });
+        } else {
+            joined.incrementAndGet();
+        }
+
+        Flight<V> shared = flight;
+        CompletableFuture<V> mine = flight.result.copy();
+        mine.whenComplete((value, error) -> {
+            if (mine.isCancelled()) {
+                leave(key, shared);
+            }
+        });
+        return mine;
+    }
+
+    private void leave(K key, Flight<V> flight) {
+        CompletableFuture<V> abandoned = null;
+        synchronized (flights) {
+            if (--flight.callers == 0) {
+                flights.remove(key, flight); // later callers start afresh rather than join a cancelled call
+                abandoned = flight.work;
+                flight.abandoned = abandoned == null; // still being started; run() cancels it once it exists
+            }
+        }
+        if (abandoned != null) {
+            abandoned.cancel(false);
+        }
+    }
+
+    // Calls answered by joining one already in flight rather than doing the work again
+    public long getJoined() {
+        return joined.get();
+    }
+}
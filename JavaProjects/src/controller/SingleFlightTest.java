@@ -0,0 +1,133 @@
+package controller;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Tests for coalescing identical in-flight calls.
+ * Work is a hand-completed future, so every interleaving is driven by the test.
+ *
+ * Run: java -cp bin controller.SingleFlightTest
+ */
+public class SingleFlightTest {
+
+    static int passed = 0;
+    static int failed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== Single-Flight Tests ===\n");
+
+        testDuplicatesShareOneCall();
+        testDifferentKeysRunSeparately();
+        testFinishedFlightIsNotReused();
+        testOneCallerCancellingKeepsWork();
+        testLastCallerCancellingCancelsWork();
+        testCallersLeavingBeforeStartCancelWork();
+
+        System.out.println("\n=== Results: " + passed + " passed, " + failed + " failed ===");
+        if (failed > 0) System.exit(1);
+    }
+
+    static final List<CompletableFuture<String>> started = new ArrayList<>();
+
+    static CompletableFuture<String> work() {
+        CompletableFuture<String> call = new CompletableFuture<>();
+        started.add(call);
+        return call;
+    }
+
+    static void testDuplicatesShareOneCall() {
+        started.clear();
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CompletableFuture<String> a = flight.run("prompt", SingleFlightTest::work);
+        CompletableFuture<String> b = flight.run("prompt", SingleFlightTest::work);
+        assertTest("Duplicate does not start new work", started.size() == 1 && flight.getJoined() == 1);
+
+        started.getFirst().complete("answer");
+        assertTest("Both callers get the answer", "answer".equals(a.join()) && "answer".equals(b.join()));
+    }
+
+    static void testDifferentKeysRunSeparately() {
+        started.clear();
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        flight.run("one", SingleFlightTest::work);
+        flight.run("two", SingleFlightTest::work);
+        assertTest("Different keys each start work", started.size() == 2 && flight.getJoined() == 0);
+    }
+
+    static void testFinishedFlightIsNotReused() {
+        started.clear();
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        flight.run("prompt", SingleFlightTest::work);
+        started.getFirst().complete("first");
+        CompletableFuture<String> later = flight.run("prompt", SingleFlightTest::work);
+        assertTest("A call after completion starts fresh", started.size() == 2 && !later.isDone());
+    }
+
+    static void testOneCallerCancellingKeepsWork() {
+        started.clear();
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CompletableFuture<String> a = flight.run("prompt", SingleFlightTest::work);
+        CompletableFuture<String> b = flight.run("prompt", SingleFlightTest::work);
+        a.cancel(false);
+        assertTest("Work survives while another caller waits", !started.getFirst().isCancelled());
+
+        started.getFirst().complete("answer");
+        assertTest("Remaining caller still gets the answer", "answer".equals(b.join()));
+    }
+
+    static void testLastCallerCancellingCancelsWork() {
+        started.clear();
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CompletableFuture<String> a = flight.run("prompt", SingleFlightTest::work);
+        CompletableFuture<String> b = flight.run("prompt", SingleFlightTest::work);
+        a.cancel(false);
+        b.cancel(false);
+        assertTest("Work is cancelled once nobody wants it", started.getFirst().isCancelled());
+
+        flight.run("prompt", SingleFlightTest::work);
+        assertTest("Next caller does not join the cancelled call", started.size() == 2);
+    }
+
+    static void testCallersLeavingBeforeStartCancelWork() {
+        started.clear();
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CompletableFuture<String> mine = flight.run("prompt", () -> {
+            // Still inside the first caller's work.get(): a second caller joins and gives up,
+            // then the first caller's place goes too, before the work is handed back
+            flight.run("prompt", SingleFlightTest::work).cancel(false);
+            leave(flight, "prompt");
+            return work();
+        });
+        assertTest("Work started after every caller left is cancelled", started.size() == 1 && started.getFirst().isCancelled());
+        assertTest("The first caller's future ends with it", mine.isCompletedExceptionally());
+    }
+
+    // The flight as run() left it, dropped by one caller the way a cancelled future would
+    static void leave(SingleFlight<String, String> flight, String key) {
+        try {
+            Field flights = SingleFlight.class.getDeclaredField("flights");
+            flights.setAccessible(true);
+            Object shared = ((Map<?, ?>) flights.get(flight)).get(key);
+            Method leave = SingleFlight.class.getDeclaredMethod("leave", Object.class, shared.getClass());
+            leave.setAccessible(true);
+            leave.invoke(flight, key, shared);
+        } catch (Exception e) {
+            throw new RuntimeException("Cannot call leave", e);
+        }
+    }
+
+    static void assertTest(String name, boolean condition) {
+        if (condition) {
+            System.out.println("  PASS: " + name);
+            passed++;
+        } else {
+            System.out.println("  FAIL: " + name);
+            failed++;
+        }
+    }
+}
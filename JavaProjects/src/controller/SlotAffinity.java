@@ -0,0 +1,52 @@
+package controller;
+
+/**
+ * Remembers which prompt prefix each llama-server slot processed last, so a call can be sent
+ * (via id_slot) to a free slot whose KV cache already holds its prefix and only the new
+ * suffix needs prefill. With no warm slot free it takes the one idle longest; with none
+ * free at all it leaves the choice to the server.
+ */
+public class SlotAffinity {
+    private final String[] prefixes;
+    private final boolean[] busy;
+    private final long[] lastUsed;
+    private long clock;
+
+    public SlotAffinity(int slots) {
+        this.prefixes = new String[slots];
+        this.busy = new boolean[slots];
+        this.lastUsed = new long[slots];
+    }
+
+    // Slot to pin the call to, or -1 to let the server pick; pair with release()
+    public synchronized int claim(String prefix) {
+        int warm = -1;
+        int coldest = -1;
+        for (int slot = 0; slot < prefixes.length; slot++) {
+            if (busy[slot]) continue;
+            if (prefix.equals(prefixes[slot]) && (warm == -1 || lastUsed[slot] > lastUsed[warm])) {
+                warm = slot;
+            }
+            if (coldest == -1 || lastUsed[slot] < lastUsed[coldest]) {
+                coldest = slot;
+            }
+        }
+        int slot = warm != -1 ? warm : coldest;
+        if (slot != -1) {
+            busy[slot] = true;
+            prefixes[slot] = prefix;
+            lastUsed[slot] = ++clock;
+        }
+        return slot;
+    }
+
+    public synchronized void release(int slot) {
+        if (slot >= 0) {
+            busy[slot] = false;
+        }
+    }
+
+    public int size() {
+        return prefixes.length;
+    }
+}
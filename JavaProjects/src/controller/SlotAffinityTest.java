@@ -0,0 +1,71 @@
+package controller;
+
+/**
+ * Tests for routing LLM calls to the llama-server slot that already holds their prompt prefix.
+ *
+ * Run: java -cp bin controller.SlotAffinityTest
+ */
+public class SlotAffinityTest {
+
+    static int passed = 0;
+    static int failed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== Slot Affinity Tests ===\n");
+
+        testReturnsToWarmSlot();
+        testBusySlotsAreSkipped();
+        testColdPrefixTakesIdlestSlot();
+        testNoSlotsLeavesChoiceToServer();
+
+        System.out.println("\n=== Results: " + passed + " passed, " + failed + " failed ===");
+        if (failed > 0) System.exit(1);
+    }
+
+    static void testReturnsToWarmSlot() {
+        SlotAffinity slots = new SlotAffinity(4);
+        int content = slots.claim("content");
+        slots.release(content);
+        int challenge = slots.claim("challenge");
+        slots.release(challenge);
+        assertTest("Different prefix gets another slot", challenge != content);
+        assertTest("Same prefix goes back to its slot", slots.claim("content") == content);
+    }
+
+    static void testBusySlotsAreSkipped() {
+        SlotAffinity slots = new SlotAffinity(2);
+        int first = slots.claim("content");
+        int second = slots.claim("content");
+        assertTest("Concurrent calls spread over free slots", first != second && second >= 0);
+        assertTest("All slots busy lets the server choose", slots.claim("content") == -1);
+        slots.release(first);
+        assertTest("Released slot is claimable again", slots.claim("content") == first);
+    }
+
+    static void testColdPrefixTakesIdlestSlot() {
+        SlotAffinity slots = new SlotAffinity(3);
+        for (String prefix : new String[] {"a", "b", "c"}) {
+            slots.release(slots.claim(prefix));
+        }
+        slots.release(slots.claim("a")); // "a" is now the most recently used
+        int fresh = slots.claim("d");
+        slots.release(fresh);
+        assertTest("New prefix evicts the longest idle slot", fresh == 1);
+        assertTest("Recently used prefix survives", slots.claim("a") == 0);
+    }
+
+    static void testNoSlotsLeavesChoiceToServer() {
+        SlotAffinity slots = new SlotAffinity(0);
+        assertTest("Affinity off never pins a slot", slots.claim("content") == -1);
+    }
+
+    static void assertTest(String name, boolean condition) {
+        if (condition) {
+            System.out.println("  PASS: " + name);
+            passed++;
+        } else {
+            System.out.println("  FAIL: " + name);
+            failed++;
+        }
+    }
+}
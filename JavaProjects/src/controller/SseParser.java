@@ -0,0 +1,46 @@
+package controller;
+
+/**
+ * Reads a streamed chat completion one line at a time. An event is its data: lines up to the
+ * next blank line; each event's choices[0].delta.content is the next piece of the reply, and
+ * a [DONE] event ends the stream. An event still open when the stream stops was cut off
+ * mid-way and is dropped rather than half-read.
+ */
+class SseParser {
+    private final StringBuilder data = new StringBuilder();
+    private boolean done;
+
+    // The text of the event this line completes; null if it completes none or the event carried no text
+    String accept(String line) {
+        if (done) {
+            return null;
+        }
+        if (line.isEmpty()) {
+            return dispatch();
+        }
+        if (line.startsWith("data:")) {
+            String value = line.substring(5);
+            if (!data.isEmpty()) data.append('\n');
+            data.append(value.startsWith(" ") ? value.substring(1) : value);
+        }
+        return null; // comments, event names, ids
+    }
+
+    boolean isDone() {
+        return done;
+    }
+
+    private String dispatch() {
+        String event = data.toString().trim();
+        data.setLength(0);
+        if (event.isEmpty()) {
+            return null;
+        }
+        if (event.equals("[DONE]")) {
+            done = true;
+            return null;
+        }
+        String token = JsonReader.readField(event, "content"); // null for role-only or empty deltas
+        return token == null || token.isEmpty() ? null : token;
+    }
+}
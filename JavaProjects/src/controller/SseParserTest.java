@@ -0,0 +1,93 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for reading llama-server's streamed replies.
+ *
+ * Run: java -cp bin controller.SseParserTest
+ */
+public class SseParserTest {
+
+    static int passed = 0;
+    static int failed = 0;
+
+    static final String STREAM = """
+            data: {"choices":[{"index":0,"delta":{"role":"assistant","content":null}}]}
+
+            data: {"choices":[{"index":0,"delta":{"content":"The door"}}]}
+
+            : keep-alive
+
+            data:{"choices":[{"index":0,"delta":{"content":" creaks"}}]}
+
+            data: {"choices":[{"index":0,"delta":{},"finish_reason":"stop"}]}
+
+            data: [DONE]
+
+            data: {"choices":[{"index":0,"delta":{"content":" after the end"}}]}
+
+            """;
+
+    public static void main(String[] args) {
+        System.out.println("=== SSE Parser Tests ===\n");
+
+        testCannedStream();
+        testEventSplitOverDataLines();
+        testCutOffEventIsDropped();
+        testEscapedContent();
+
+        System.out.println("\n=== Results: " + passed + " passed, " + failed + " failed ===");
+        if (failed > 0) System.exit(1);
+    }
+
+    static List<String> read(SseParser parser, String stream) {
+        List<String> tokens = new ArrayList<>();
+        for (String line : stream.split("\n", -1)) {
+            if (parser.isDone()) break;
+            String token = parser.accept(line);
+            if (token != null) tokens.add(token);
+        }
+        return tokens;
+    }
+
+    static void testCannedStream() {
+        SseParser parser = new SseParser();
+        List<String> tokens = read(parser, STREAM);
+        assertTest("Only deltas with content give text", tokens.equals(List.of("The door", " creaks")));
+        assertTest("[DONE] ends the stream", parser.isDone());
+        assertTest("Nothing is read after [DONE]", parser.accept("data: {\"content\":\"more\"}") == null && parser.accept("") == null);
+    }
+
+    static void testEventSplitOverDataLines() {
+        SseParser parser = new SseParser();
+        List<String> tokens = read(parser, "data: {\"choices\":[{\"delta\":\n"
+                + "data: {\"content\":\"joined\"}}]}\n\n");
+        assertTest("Data lines of one event are read together", tokens.equals(List.of("joined")));
+    }
+
+    static void testCutOffEventIsDropped() {
+        SseParser parser = new SseParser();
+        List<String> tokens = read(parser, "data: {\"choices\":[{\"delta\":{\"content\":\"kept\"}}]}\n\n"
+                + "data: {\"choices\":[{\"delta\":{\"content\":\"tor");
+        assertTest("Event without its blank line gives nothing", tokens.equals(List.of("kept")));
+        assertTest("Stream cut off before [DONE] is not done", !parser.isDone());
+    }
+
+    static void testEscapedContent() {
+        SseParser parser = new SseParser();
+        List<String> tokens = read(parser, "data: {\"choices\":[{\"delta\":{\"content\":\"\\\"Halt!\\\"\\n\"}}]}\n\n");
+        assertTest("Escapes in content are decoded", tokens.equals(List.of("\"Halt!\"\n")));
+    }
+
+    static void assertTest(String name, boolean condition) {
+        if (condition) {
+            System.out.println("  PASS: " + name);
+            passed++;
+        } else {
+            System.out.println("  FAIL: " + name);
+            failed++;
+        }
+    }
+}
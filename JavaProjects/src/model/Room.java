@@ -149,14 +149,23 @@ public class Room {
         return items;
     }
 
-    public boolean isVisited() {
+    public synchronized boolean isVisited() {
         return isVisited;
     }
 
-    public void setVisited(boolean visited) {
+    public synchronized void setVisited(boolean visited) {
         isVisited = visited;
     }
 
+    // Applies change only while the player has not entered; entering takes the same lock
+    public synchronized boolean updateIfUnvisited(Runnable change) {
+        if (isVisited) {
+            return false;
+        }
+        change.run();
+        return true;
+    }
+
     public boolean hasItem() { return items != null && !items.isEmpty(); }
 
     public HashSet<Directions> getLockedExits() { return lockedExits; }
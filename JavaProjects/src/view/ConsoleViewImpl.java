@@ -1,6 +1,7 @@
 package view;
 
 import controller.ConsoleView;
+import controller.DegradationTier;
 import model.*;
 
 import java.util.List;
@@ -391,6 +392,17 @@ public class ConsoleViewImpl implements ConsoleView {
         System.out.println();
     }
 
+    @Override
+    public void displayLLMStatus(DegradationTier tier) {
+        String color = switch (tier) {
+            case FULL -> GREEN;
+            case REDUCED -> YELLOW;
+            case MINIMAL -> RED;
+        };
+        System.out.println("LLM Service: " + color + tier + RESET + " (" + tier.getDescription() + ")");
+        System.out.println();
+    }
+
     @Override
     public void displayGameOver(GameState state, boolean victory) {
         displaySeparator();